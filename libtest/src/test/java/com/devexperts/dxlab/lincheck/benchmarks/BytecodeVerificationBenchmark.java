@@ -0,0 +1,77 @@
+/*
+ * Lincheck - Linearizability checker
+ *
+ * Copyright (C) 2015-2022 Devexperts, LLC
+ * Copyright (C) 2023 Devexperts Ireland Limited
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed with this file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.devexperts.dxlab.lincheck.benchmarks;
+
+import com.google.common.collect.ConcurrentHashMultiset;
+import org.cliffc.high_scale_lib.NonBlockingHashMap;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.util.CheckClassAdapter;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.GenerateMicroBenchmark;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import romix.scala.collection.concurrent.TrieMap;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of the transformation pipeline for library classes
+ * with and without {@link CheckClassAdapter}, which is used only if
+ * the byte-code verification is enabled (see {@code Strategy.VERIFY_BYTECODE_PROPERTY}).
+ */
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@BenchmarkMode({Mode.AverageTime})
+@Warmup(iterations = 3, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@State(Scope.Thread)
+public class BytecodeVerificationBenchmark {
+    private static final Class<?>[] CLASSES = {NonBlockingHashMap.class, ConcurrentHashMultiset.class, TrieMap.class};
+
+    private ClassReader[] readers;
+
+    @Setup
+    public void setUp() throws IOException {
+        readers = new ClassReader[CLASSES.length];
+        for (int i = 0; i < CLASSES.length; i++)
+            readers[i] = new ClassReader(CLASSES[i].getName());
+    }
+
+    @GenerateMicroBenchmark
+    public int withoutVerification() {
+        int size = 0;
+        for (ClassReader cr : readers) {
+            ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+            cr.accept(cw, ClassReader.EXPAND_FRAMES);
+            size += cw.toByteArray().length;
+        }
+        return size;
+    }
+
+    @GenerateMicroBenchmark
+    public int withVerification() {
+        int size = 0;
+        for (ClassReader cr : readers) {
+            ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+            ClassVisitor cv = new CheckClassAdapter(cw, false);
+            cr.accept(cv, ClassReader.EXPAND_FRAMES);
+            size += cw.toByteArray().length;
+        }
+        return size;
+    }
+}
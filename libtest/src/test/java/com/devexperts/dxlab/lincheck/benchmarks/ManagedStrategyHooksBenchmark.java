@@ -0,0 +1,106 @@
+/*
+ * Lincheck - Linearizability checker
+ *
+ * Copyright (C) 2015-2022 Devexperts, LLC
+ * Copyright (C) 2023 Devexperts Ireland Limited
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed with this file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.devexperts.dxlab.lincheck.benchmarks;
+
+import com.devexperts.dxlab.lincheck.Actor;
+import com.devexperts.dxlab.lincheck.LoggingLevel;
+import com.devexperts.dxlab.lincheck.Reporter;
+import com.devexperts.dxlab.lincheck.execution.ExecutionResult;
+import com.devexperts.dxlab.lincheck.execution.ExecutionScenario;
+import com.devexperts.dxlab.lincheck.runner.ParallelThreadsRunner;
+import com.devexperts.dxlab.lincheck.runner.Runner;
+import com.devexperts.dxlab.lincheck.strategy.ManagedStrategy;
+import com.devexperts.dxlab.lincheck.strategy.Strategy;
+import com.devexperts.dxlab.lincheck.verifier.EpsilonVerifier;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.GenerateMicroBenchmark;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import tests.custom.counter.CounterWrong0;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the overhead of the hooks which {@code ManagedStrategyTransformer} inserts
+ * before every field and array access, comparing the invocations of the same scenario
+ * with the instrumented counter and with the original one. The scenario is executed by the runner,
+ * thus the hooks determine the thread number on the fast path, as in the real tests.
+ * The strategy does not override the hooks, thus only the cost of the hook invocations is measured.
+ */
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@BenchmarkMode({Mode.AverageTime})
+@Warmup(iterations = 3, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@State(Scope.Thread)
+public class ManagedStrategyHooksBenchmark {
+    private static final int ACTORS = 1000;
+
+    private Runner uninstrumented;
+    private HooksStrategy instrumented;
+
+    @Setup
+    public void setUp() throws Exception {
+        // The test class itself should be transformed, thus the counter from libtest is used
+        // instead of a class from the lincheck package; its operation performs one field read and one write
+        Actor actor = new Actor(CounterWrong0.class.getMethod("incrementAndGet"), Collections.emptyList(),
+            Collections.emptyList());
+        ExecutionScenario scenario = new ExecutionScenario(Collections.emptyList(),
+            Collections.singletonList(Collections.nCopies(ACTORS, actor)), Collections.emptyList());
+        Strategy strategy = new Strategy(scenario, new EpsilonVerifier(scenario, CounterWrong0.class),
+            new Reporter(LoggingLevel.ERROR))
+        {
+            @Override
+            public void run() {}
+        };
+        uninstrumented = new ParallelThreadsRunner(scenario, strategy, CounterWrong0.class, null);
+        instrumented = new HooksStrategy(scenario);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        uninstrumented.close();
+        instrumented.run(); // closes the runner
+    }
+
+    @GenerateMicroBenchmark
+    @OperationsPerInvocation(ACTORS)
+    public ExecutionResult uninstrumented() throws InterruptedException {
+        return uninstrumented.run();
+    }
+
+    @GenerateMicroBenchmark
+    @OperationsPerInvocation(ACTORS)
+    public ExecutionResult instrumented() throws InterruptedException {
+        return instrumented.invoke();
+    }
+
+    private static class HooksStrategy extends ManagedStrategy {
+        HooksStrategy(ExecutionScenario scenario) {
+            super(CounterWrong0.class, scenario, new EpsilonVerifier(scenario, CounterWrong0.class),
+                new Reporter(LoggingLevel.ERROR), 0);
+        }
+
+        ExecutionResult invoke() throws InterruptedException {
+            return runInvocation();
+        }
+
+        @Override
+        protected void runImpl() {}
+    }
+}
@@ -13,6 +13,7 @@ package com.devexperts.dxlab.lincheck;
 import com.devexperts.dxlab.lincheck.annotations.Operation;
 
 import java.lang.reflect.Method;
+import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -27,6 +28,7 @@ public class Actor {
     public final Method method;
     public final Object[] arguments;
     public final List<Class<? extends Throwable>> handledExceptions;
+    private final boolean readOnly;
 
     public Actor(Method method, List<Object> arguments, List<Class<? extends Throwable>> handledExceptions) {
         this(method, arguments.toArray(), handledExceptions);
@@ -36,6 +38,8 @@ public class Actor {
         this.method = method;
         this.arguments = arguments;
         this.handledExceptions = handledExceptions;
+        Operation opAnn = method.getAnnotation(Operation.class);
+        this.readOnly = opAnn != null && opAnn.readOnly();
     }
 
     @Override
@@ -43,7 +47,35 @@ public class Actor {
         return method.getName() + "(" + Stream.of(arguments).map(Object::toString).collect(Collectors.joining(", ")) + ")";
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (o == null || getClass() != o.getClass())
+            return false;
+        Actor actor = (Actor) o;
+        return method.equals(actor.method) && Arrays.equals(arguments, actor.arguments) &&
+            handledExceptions.equals(actor.handledExceptions);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = method.hashCode();
+        result = 31 * result + Arrays.hashCode(arguments);
+        result = 31 * result + handledExceptions.hashCode();
+        return result;
+    }
+
     public boolean handlesExceptions() {
         return !handledExceptions.isEmpty();
     }
+
+    /**
+     * Returns {@code true} if the operation is marked as read-only.
+     *
+     * @see Operation#readOnly()
+     */
+    public boolean isReadOnly() {
+        return readOnly;
+    }
 }
@@ -12,6 +12,8 @@ package com.devexperts.dxlab.lincheck;
 
 import com.devexperts.dxlab.lincheck.execution.ExecutionGenerator;
 import com.devexperts.dxlab.lincheck.execution.RandomExecutionGenerator;
+import com.devexperts.dxlab.lincheck.strategy.cooperative.CooperativeCTest;
+import com.devexperts.dxlab.lincheck.strategy.cooperative.CooperativeCTestConfiguration;
 import com.devexperts.dxlab.lincheck.strategy.randomswitch.RandomSwitchCTest;
 import com.devexperts.dxlab.lincheck.strategy.randomswitch.RandomSwitchCTestConfiguration;
 import com.devexperts.dxlab.lincheck.strategy.stress.StressCTest;
@@ -36,6 +38,9 @@ public abstract class CTestConfiguration {
     public static final int DEFAULT_ACTORS_AFTER = 5;
     public static final Class<? extends ExecutionGenerator> DEFAULT_EXECUTION_GENERATOR = RandomExecutionGenerator.class;
     public static final Class<? extends Verifier> DEFAULT_VERIFIER = LinearizabilityVerifier.class;
+    public static final int DEFAULT_VERIFICATION_THREADS = 0;
+    public static final int DEFAULT_PARALLEL_ITERATIONS = 1;
+    public static final int DEFAULT_MAX_THREADS = 0;
 
     public final int iterations;
     public final int threads;
@@ -44,9 +49,13 @@ public abstract class CTestConfiguration {
     public final int actorsAfter;
     public final Class<? extends ExecutionGenerator> generatorClass;
     public final Class<? extends Verifier> verifierClass;
+    public final int verificationThreads;
+    public final int parallelIterations;
+    public final int maxThreads;
 
     protected CTestConfiguration(int iterations, int threads, int actorsPerThread, int actorsBefore, int actorsAfter,
-        Class<? extends ExecutionGenerator> generatorClass, Class<? extends Verifier> verifierClass)
+        Class<? extends ExecutionGenerator> generatorClass, Class<? extends Verifier> verifierClass,
+        int verificationThreads, int parallelIterations, int maxThreads)
     {
         this.iterations = iterations;
         this.threads = threads;
@@ -55,17 +64,28 @@ public abstract class CTestConfiguration {
         this.actorsAfter = actorsAfter;
         this.generatorClass = generatorClass;
         this.verifierClass = verifierClass;
+        this.verificationThreads = verificationThreads;
+        this.parallelIterations = parallelIterations;
+        this.maxThreads = maxThreads;
     }
 
     static List<CTestConfiguration> createFromTestClass(Class<?> testClass) {
         Stream<StressCTestConfiguration> stressConfigurations = Arrays.stream(testClass.getAnnotationsByType(StressCTest.class))
             .map(ann -> new StressCTestConfiguration(ann.iterations(),
                 ann.threads(), ann.actorsPerThread(), ann.actorsBefore(), ann.actorsAfter(),
-                ann.generator(), ann.verifier(), ann.invocationsPerIteration(), true));
+                ann.generator(), ann.verifier(), ann.verificationThreads(), ann.parallelIterations(), ann.maxThreads(),
+                ann.invocationsPerIteration(), ann.invocationsPerBatch(), true));
         Stream<RandomSwitchCTestConfiguration> randomSwitchConfigurations = Arrays.stream(testClass.getAnnotationsByType(RandomSwitchCTest.class))
             .map(ann -> new RandomSwitchCTestConfiguration(ann.iterations(),
                 ann.threads(), ann.actorsPerThread(), ann.actorsBefore(), ann.actorsAfter(),
-                ann.generator(), ann.verifier(), ann.invocationsPerIteration()));
-        return Stream.concat(stressConfigurations, randomSwitchConfigurations).collect(Collectors.toList());
+                ann.generator(), ann.verifier(), ann.verificationThreads(), ann.parallelIterations(), ann.maxThreads(),
+                ann.invocationsPerIteration()));
+        Stream<CooperativeCTestConfiguration> cooperativeConfigurations = Arrays.stream(testClass.getAnnotationsByType(CooperativeCTest.class))
+            .map(ann -> new CooperativeCTestConfiguration(ann.iterations(),
+                ann.threads(), ann.actorsPerThread(), ann.actorsBefore(), ann.actorsAfter(),
+                ann.generator(), ann.verifier(), ann.verificationThreads(), ann.parallelIterations(), ann.maxThreads(),
+                ann.invocationsPerIteration(), ann.seed(), ann.blockingTimeoutMillis()));
+        return Stream.of(stressConfigurations, randomSwitchConfigurations, cooperativeConfigurations)
+            .flatMap(s -> s).collect(Collectors.toList());
     }
 }
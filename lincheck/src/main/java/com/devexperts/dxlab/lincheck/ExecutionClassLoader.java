@@ -12,12 +12,46 @@ package com.devexperts.dxlab.lincheck;
 
 import com.devexperts.dxlab.lincheck.runner.TestThreadExecution;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
 /**
  * This classloader is mostly used by runner in order to separate parallel iterations,
  * and define generated {@link TestThreadExecution test executions}.
+ * <p>
+ * Runners which do not transform classes share one class loader per test class,
+ * so that the generated test executions are reused between iterations.
  */
 public class ExecutionClassLoader extends ClassLoader {
+    private static final ClassValue<ExecutionClassLoader> SHARED_LOADERS = new ClassValue<ExecutionClassLoader>() {
+        @Override
+        protected ExecutionClassLoader computeValue(Class<?> testClass) {
+            return new ExecutionClassLoader();
+        }
+    };
+
+    // Generated test execution classes by their shapes, see TestThreadExecutionGenerator
+    private final Map<Object, Class<? extends TestThreadExecution>> executionClasses = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the class loader which is shared between all runners for the specified test class.
+     */
+    public static ExecutionClassLoader forTestClass(Class<?> testClass) {
+        return SHARED_LOADERS.get(testClass);
+    }
+
     public Class<? extends TestThreadExecution> defineClass(String className, byte[] bytecode) {
         return (Class<? extends TestThreadExecution>) super.defineClass(className, bytecode, 0, bytecode.length);
     }
+
+    /**
+     * Returns the test execution class for the specified shape,
+     * defines it via the specified generator if it has not been defined yet.
+     */
+    public Class<? extends TestThreadExecution> getOrDefineExecutionClass(Object shape,
+        Supplier<Class<? extends TestThreadExecution>> generator)
+    {
+        return executionClasses.computeIfAbsent(shape, s -> generator.get());
+    }
 }
@@ -13,11 +13,21 @@ package com.devexperts.dxlab.lincheck;
 import com.devexperts.dxlab.lincheck.annotations.LogLevel;
 import com.devexperts.dxlab.lincheck.execution.ExecutionGenerator;
 import com.devexperts.dxlab.lincheck.execution.ExecutionScenario;
+import com.devexperts.dxlab.lincheck.runner.ParallelThreadsRunner;
+import com.devexperts.dxlab.lincheck.strategy.ManagedStrategy;
 import com.devexperts.dxlab.lincheck.strategy.Strategy;
 import com.devexperts.dxlab.lincheck.verifier.Verifier;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static com.devexperts.dxlab.lincheck.ReporterKt.DEFAULT_LOG_LEVEL;
 
@@ -31,6 +41,8 @@ public class LinChecker {
     private final List<? extends CTestConfiguration> testConfigurations;
     private final CTestStructure testStructure;
     private final Reporter reporter;
+    // Names of the classes transformed in the iterations of the current test configuration
+    private final Set<String> transformedClasses = ConcurrentHashMap.newKeySet();
 
     private LinChecker(Class<?> testClass, Options options) {
         this.testClass = testClass;
@@ -86,13 +98,112 @@ public class LinChecker {
 
     private void checkImpl(CTestConfiguration testCfg) throws AssertionError, Exception {
         ExecutionGenerator exGen = createExecutionGenerator(testCfg.generatorClass, testCfg);
+        int createdThreadsBefore = ParallelThreadsRunner.getCreatedTestThreads();
+        long threadsCreationTimeBefore = ParallelThreadsRunner.getTestThreadsCreationTimeNanos();
+        transformedClasses.clear();
         // Run iterations
-        for (int iteration = 1; iteration <= testCfg.iterations; iteration++) {
-            ExecutionScenario scenario = exGen.nextExecution();
-            reporter.logIteration(iteration, testCfg.iterations, scenario);
-            Verifier verifier = createVerifier(testCfg.verifierClass, scenario, testClass);
-            Strategy strategy = Strategy.createStrategy(testCfg, testClass, scenario, verifier, reporter);
+        int parallelIterations = countParallelIterations(testCfg);
+        if (parallelIterations > 1) {
+            runIterationsInParallel(testCfg, exGen, parallelIterations);
+        } else {
+            for (int iteration = 1; iteration <= testCfg.iterations; iteration++)
+                runIteration(testCfg, iteration, exGen.nextExecution());
+        }
+        reporter.logTestThreadsCreation(ParallelThreadsRunner.getCreatedTestThreads() - createdThreadsBefore,
+            ParallelThreadsRunner.getTestThreadsCreationTimeNanos() - threadsCreationTimeBefore);
+        logSharedVariableAccesses();
+    }
+
+    /**
+     * Logs the numbers of instrumented and skipped shared variable accesses in the classes
+     * transformed for this test, they do not depend on the other tests and on the transformation cache.
+     */
+    private void logSharedVariableAccesses() {
+        if (transformedClasses.isEmpty())
+            return;
+        long instrumented = 0;
+        long skipped = 0;
+        for (String className : transformedClasses) {
+            instrumented += ManagedStrategy.getInstrumentedSharedVariableAccesses(className);
+            skipped += ManagedStrategy.getSkippedSharedVariableAccesses(className);
+        }
+        reporter.logSharedVariableAccesses(transformedClasses.size(), instrumented, skipped);
+    }
+
+    private void runIteration(CTestConfiguration testCfg, int iteration, ExecutionScenario scenario) throws Exception {
+        reporter.logIteration(iteration, testCfg.iterations, scenario);
+        Verifier verifier = createVerifier(testCfg.verifierClass, scenario, testClass);
+        Strategy strategy = Strategy.createStrategy(testCfg, testClass, scenario, verifier, reporter);
+        try {
             strategy.run();
+            strategy.completeVerification();
+        } finally {
+            strategy.cancelVerification(); // if the run is failed
+            if (strategy instanceof ManagedStrategy)
+                transformedClasses.addAll(((ManagedStrategy) strategy).getTransformedClasses());
+        }
+    }
+
+    /**
+     * Returns the number of iterations which can be run in parallel without
+     * exceeding {@link CTestConfiguration#maxThreads}. Every iteration uses
+     * the test threads, the strategy one and the verification ones.
+     */
+    private static int countParallelIterations(CTestConfiguration testCfg) {
+        int maxThreads = testCfg.maxThreads > 0 ? testCfg.maxThreads : Runtime.getRuntime().availableProcessors();
+        int threadsPerIteration = testCfg.threads + 1 + testCfg.verificationThreads;
+        return Math.max(1, Math.min(testCfg.parallelIterations, maxThreads / threadsPerIteration));
+    }
+
+    /**
+     * Runs iterations in the specified number of threads. The scenarios are generated
+     * in advance in the same order as in the sequential mode, so that every iteration
+     * gets the same scenario. After the first failure the rest iterations are not started,
+     * and the failure of the first failed in the iteration order one is thrown.
+     */
+    private void runIterationsInParallel(CTestConfiguration testCfg, ExecutionGenerator exGen,
+        int parallelIterations) throws Exception
+    {
+        List<ExecutionScenario> scenarios = new ArrayList<>(testCfg.iterations);
+        for (int iteration = 1; iteration <= testCfg.iterations; iteration++)
+            scenarios.add(exGen.nextExecution());
+        ExecutorService executor = Executors.newFixedThreadPool(parallelIterations, r -> {
+            Thread t = new Thread(r, "IterationThread");
+            t.setDaemon(true);
+            return t;
+        });
+        AtomicBoolean failed = new AtomicBoolean();
+        try {
+            List<Future<?>> futures = new ArrayList<>(scenarios.size());
+            for (int i = 0; i < scenarios.size(); i++) {
+                int iteration = i + 1;
+                ExecutionScenario scenario = scenarios.get(i);
+                futures.add(executor.submit(() -> {
+                    if (failed.get())
+                        return null;
+                    try {
+                        runIteration(testCfg, iteration, scenario);
+                    } catch (Throwable t) {
+                        failed.set(true);
+                        throw t;
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> f : futures) {
+                try {
+                    f.get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof Exception)
+                        throw (Exception) cause;
+                    if (cause instanceof Error)
+                        throw (Error) cause;
+                    throw e;
+                }
+            }
+        } finally {
+            executor.shutdownNow();
         }
     }
 
@@ -29,6 +29,9 @@ public abstract class Options<OPT extends Options, CTEST extends CTestConfigurat
     protected int actorsAfter = CTestConfiguration.DEFAULT_ACTORS_AFTER;
     protected Class<? extends ExecutionGenerator> executionGenerator = CTestConfiguration.DEFAULT_EXECUTION_GENERATOR;
     protected Class<? extends Verifier> verifier = CTestConfiguration.DEFAULT_VERIFIER;
+    protected int verificationThreads = CTestConfiguration.DEFAULT_VERIFICATION_THREADS;
+    protected int parallelIterations = CTestConfiguration.DEFAULT_PARALLEL_ITERATIONS;
+    protected int maxThreads = CTestConfiguration.DEFAULT_MAX_THREADS;
 
     /**
      * Number of different test scenarios to be executed
@@ -106,6 +109,37 @@ public abstract class Options<OPT extends Options, CTEST extends CTestConfigurat
         return (OPT) this;
     }
 
+    /**
+     * Verify results in the specified number of threads asynchronously with the execution,
+     * {@code 0} means that results are verified synchronously (by default).
+     * <p>
+     * Note, that the verifier should be thread-safe in this case.
+     */
+    public OPT verificationThreads(int verificationThreads) {
+        this.verificationThreads = verificationThreads;
+        return (OPT) this;
+    }
+
+    /**
+     * Run the specified number of iterations in parallel, each with its own strategy and runner.
+     * The classes are loaded by a separate class loader per iteration only if they are transformed,
+     * otherwise the iterations share the static state of the test class.
+     * Scenarios are generated sequentially, so the iteration numbers do not depend on this option.
+     */
+    public OPT parallelIterations(int parallelIterations) {
+        this.parallelIterations = parallelIterations;
+        return (OPT) this;
+    }
+
+    /**
+     * Limit the total number of threads used by parallel iterations,
+     * {@code 0} means the number of available processors (by default).
+     */
+    public OPT maxThreads(int maxThreads) {
+        this.maxThreads = maxThreads;
+        return (OPT) this;
+    }
+
     public abstract CTEST createTestConfigurations();
 
     /**
@@ -45,6 +45,22 @@ class Reporter @JvmOverloads constructor(val logLevel: LoggingLevel, val out: Pr
         out.println(results.postResults)
     }
 
+    fun logTestThreadsCreation(createdThreads: Int, creationTimeNanos: Long) = log(LoggingLevel.INFO) {
+        "Test threads created: $createdThreads (${creationTimeNanos / 1_000} us)"
+    }
+
+    fun logSharedVariableAccesses(transformedClasses: Int, instrumented: Long, skipped: Long) = log(LoggingLevel.INFO) {
+        "Shared variable accesses in $transformedClasses transformed classes instrumented: $instrumented, skipped: $skipped"
+    }
+
+    fun logVerificationNotStopped(timeoutMillis: Long) = log(LoggingLevel.WARN) {
+        "Verification threads have not stopped in $timeoutMillis ms after the test failure and have been interrupted"
+    }
+
+    fun logUncontrolledInvocations(uncontrolled: Int, invocations: Int) = log(LoggingLevel.WARN) {
+        "Invocations partially executed without the control and not reproducible: $uncontrolled of $invocations"
+    }
+
     inline fun log(logLevel: LoggingLevel, crossinline msg: () -> String) {
         if (this.logLevel > logLevel) return
         out.println(msg())
@@ -30,16 +30,31 @@ public class Result {
         this.tClazz = tClazz;
     }
 
+    private static final Result VOID_RESULT = new Result(Type.VOID, null, null);
+    private static final ClassValue<Result> EXCEPTION_RESULTS = new ClassValue<Result>() {
+        @Override
+        @SuppressWarnings("unchecked")
+        protected Result computeValue(Class<?> tClazz) {
+            return new Result(Type.EXCEPTION, null, (Class<? extends Throwable>) tClazz);
+        }
+    };
+
+    /**
+     * Returns the shared void result, it is immutable.
+     */
     public static Result createVoidResult() {
-        return new Result(Type.VOID, null, null);
+        return VOID_RESULT;
     }
 
     public static Result createValueResult(Object value) {
         return new Result(Type.VALUE, value, null);
     }
 
+    /**
+     * Returns the shared exception result for the specified class, it is immutable.
+     */
     public static Result createExceptionResult(Class<? extends Throwable> tClazz) {
-        return new Result(Type.EXCEPTION, null, tClazz);
+        return EXCEPTION_RESULTS.get(tClazz);
     }
 
     public Type getType() {
@@ -22,26 +22,46 @@ import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.ClassWriter;
 import org.objectweb.asm.util.CheckClassAdapter;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
+import java.util.Collections;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * This transformer applies required for {@link Strategy} and {@link Runner}
  * class transformations and hines them from others.
+ * <p>
+ * The transformed byte-code is cached in memory by the class name and the transformers configuration,
+ * so that the classes are instrumented only once per JVM. However, every loader defines the classes anew,
+ * thus static state is reset and iterations stay isolated from each other.
+ * The transformed byte-code can also be persisted between JVM runs, see {@link TransformedClassesDiskCache}.
  */
 public class TransformationClassLoader extends ExecutionClassLoader {
+    // Transformed byte-code by transformers identifier and class name, shared between loaders
+    private static final Map<String, byte[]> transformedClasses = new ConcurrentHashMap<>();
+    // Optional persistent cache, see TransformedClassesDiskCache
+    private static final TransformedClassesDiskCache diskCache = TransformedClassesDiskCache.create();
+
     // Strategy and runner provide class transformers
     private final Strategy strategy;
     private final Runner runner;
+    // Identifies the applied transformations, see transformedClasses
+    private final String transformersId;
     // Cache for classloading and frames computing during the transformation
     private final Map<String, Class<?>> cache = new ConcurrentHashMap<>();
+    // Names of the transformed classes loaded by this loader
+    private final Set<String> transformedClassNames = ConcurrentHashMap.newKeySet();
     private final ClassInfoCache ciCache = new ClassInfoCache(new Log("lin-check", Log.Level.DEBUG, null));
 
     public TransformationClassLoader(Strategy strategy, Runner runner) {
         this.strategy = strategy;
         this.runner = runner;
+        this.transformersId = (strategy.needsTransformation() ? strategy.getClass().getName() : "") + "/" +
+            (runner.needsTransformation() ? runner.getClass().getName() : "");
     }
 
     /**
@@ -57,7 +77,8 @@ public class TransformationClassLoader extends ExecutionClassLoader {
                 !className.equals("com.devexperts.dxlab.lincheck.strategy.ManagedStrategyHolder")) ||
             className.startsWith("sun.") ||
             className.startsWith("java.");
-        // TODO let's transform java.util.concurrent
+        // The java.util.concurrent.atomic operations are instrumented
+        // at their call sites, see ManagedStrategyTransformer
     }
 
     @Override
@@ -73,9 +94,10 @@ public class TransformationClassLoader extends ExecutionClassLoader {
                 return result;
             }
             try {
-                byte[] bytes = instrument(name);
+                byte[] bytes = getTransformedBytes(name);
                 result = defineClass(name, bytes, 0, bytes.length);
                 cache.put(name, result);
+                transformedClassNames.add(name);
                 return result;
             } catch (Exception e) {
                 throw new IllegalStateException("Cannot transform class " + name, e);
@@ -84,16 +106,63 @@ public class TransformationClassLoader extends ExecutionClassLoader {
     }
 
     /**
-     * Reads class as resource, instruments it (applies {@link Strategy}'s transformer at first,
+     * Returns the names of the classes which have been transformed and loaded by this loader.
+     */
+    public Set<String> getTransformedClasses() {
+        return Collections.unmodifiableSet(transformedClassNames);
+    }
+
+    /**
+     * Returns the transformed byte-code of the specified class from the cache,
+     * instruments the class if it has not been transformed yet.
+     */
+    private byte[] getTransformedBytes(String className) throws IOException {
+        String key = transformersId + ":" + className;
+        byte[] bytes = transformedClasses.get(key);
+        if (bytes == null) {
+            byte[] originalBytes = readClassBytes(className);
+            String diskKey = diskCache != null ? diskCache.key(className, originalBytes, transformersId) : null;
+            if (diskCache != null) {
+                bytes = diskCache.get(diskKey);
+                // The strategy restores its state which is not stored in the byte-code, e.g. code locations
+                if (bytes != null && strategy.needsTransformation() && !strategy.restoreTransformation(bytes))
+                    bytes = null;
+            }
+            if (bytes == null) {
+                bytes = instrument(originalBytes);
+                if (diskCache != null)
+                    diskCache.put(diskKey, bytes);
+            }
+            transformedClasses.put(key, bytes);
+        }
+        return bytes;
+    }
+
+    /**
+     * Reads the original byte-code of the specified class as a system resource.
+     */
+    private static byte[] readClassBytes(String className) throws IOException {
+        try (InputStream in = ClassLoader.getSystemResourceAsStream(className.replace('.', '/') + ".class")) {
+            if (in == null)
+                throw new IOException("Class not found: " + className);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            for (int n; (n = in.read(buffer)) != -1; )
+                out.write(buffer, 0, n);
+            return out.toByteArray();
+        }
+    }
+
+    /**
+     * Instruments class (applies {@link Strategy}'s transformer at first,
      * then {@link Runner}'s) and returns the resulting byte-code.
      *
-     * @param className name of the class to be transformed.
+     * @param originalBytes the byte-code of the class to be transformed.
      * @return the byte-code of the transformed class.
-     * @throws IOException if class could not be read as a resource.
      */
-    private byte[] instrument(String className) throws IOException {
+    private byte[] instrument(byte[] originalBytes) {
         // Create ClassReader
-        ClassReader cr = new ClassReader(className);
+        ClassReader cr = new ClassReader(originalBytes);
         // Build class info
         ClassInfoVisitor ciVisitor = new ClassInfoVisitor();
         cr.accept(ciVisitor, 0);
@@ -102,7 +171,7 @@ public class TransformationClassLoader extends ExecutionClassLoader {
         // apply the strategy's transformer at first,
         // then the runner's one.
         ClassWriter cw = new FrameClassWriter(this, ciCache, ci.getVersion());
-        ClassVisitor cv = new CheckClassAdapter(cw, false); // for debug
+        ClassVisitor cv = strategy.verifyBytecode() ? new CheckClassAdapter(cw, false) : cw;
         if (runner.needsTransformation()) {
             cv = runner.createTransformer(cv, ci);
         }
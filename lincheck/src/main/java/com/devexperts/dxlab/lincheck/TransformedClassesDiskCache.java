@@ -0,0 +1,150 @@
+/*
+ * Lincheck - Linearizability checker
+ *
+ * Copyright (C) 2015-2022 Devexperts, LLC
+ * Copyright (C) 2023 Devexperts Ireland Limited
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed with this file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.devexperts.dxlab.lincheck;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.CodeSource;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * This cache stores transformed byte-code on disk, so that it is shared between JVM runs.
+ * It is disabled by default, set {@value #CACHE_DIR_PROPERTY} system property
+ * to the cache directory in order to enable it.
+ * <p>
+ * Cached classes are identified by the hash of the original byte-code, the applied transformers
+ * and the lincheck classes themselves, so that the entries are not reused after any change
+ * of the transformers even if the version is the same. The cache is best-effort,
+ * I/O errors lead to a cache miss and are not reported.
+ */
+class TransformedClassesDiskCache {
+    static final String CACHE_DIR_PROPERTY = "lincheck.transformationCacheDir";
+
+    private final Path dir;
+    // The hash of the lincheck classes, see lincheckHash()
+    private final byte[] lincheckHash;
+
+    private TransformedClassesDiskCache(Path dir) {
+        this.dir = dir;
+        this.lincheckHash = lincheckHash();
+    }
+
+    /**
+     * Returns the cache for the directory specified via {@value #CACHE_DIR_PROPERTY},
+     * or {@code null} if the property is not set.
+     */
+    static TransformedClassesDiskCache create() {
+        String dir = System.getProperty(CACHE_DIR_PROPERTY);
+        return dir == null ? null : new TransformedClassesDiskCache(Paths.get(dir));
+    }
+
+    /**
+     * Returns the key of the cache entry for the specified class.
+     */
+    String key(String className, byte[] originalBytes, String transformersId) {
+        MessageDigest digest = sha256();
+        digest.update(lincheckHash);
+        digest.update(transformersId.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(originalBytes);
+        StringBuilder key = new StringBuilder(className).append('-');
+        for (byte b : digest.digest())
+            key.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        return key.toString();
+    }
+
+    /**
+     * Returns the cached byte-code, or {@code null} if there is no such entry.
+     */
+    byte[] get(String key) {
+        Path file = dir.resolve(key + ".class");
+        if (!Files.isRegularFile(file))
+            return null;
+        try {
+            return Files.readAllBytes(file);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Stores the byte-code to the cache. The entry is written to a temporary file at first
+     * and then is atomically moved, so that concurrent runs never read partially written entries.
+     */
+    void put(String key, byte[] bytes) {
+        try {
+            Files.createDirectories(dir);
+            Path tmp = Files.createTempFile(dir, key, ".tmp");
+            try {
+                Files.write(tmp, bytes);
+                Files.move(tmp, dir.resolve(key + ".class"),
+                    StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        } catch (IOException ignored) {
+            // The entry is just not cached
+        }
+    }
+
+    /**
+     * Returns the hash of the jar or the directory with lincheck classes. A random value is returned
+     * if the classes cannot be read, thus the entries stored by other runs are not used then.
+     */
+    private static byte[] lincheckHash() {
+        try {
+            CodeSource codeSource = TransformedClassesDiskCache.class.getProtectionDomain().getCodeSource();
+            URL location = codeSource == null ? null : codeSource.getLocation();
+            if (location == null)
+                return randomHash();
+            Path path = Paths.get(location.toURI());
+            MessageDigest digest = sha256();
+            if (!Files.isDirectory(path)) {
+                digest.update(Files.readAllBytes(path));
+                return digest.digest();
+            }
+            List<Path> classes;
+            try (Stream<Path> files = Files.walk(path)) {
+                classes = files.filter(f -> f.toString().endsWith(".class")).sorted().collect(Collectors.toList());
+            }
+            for (Path c : classes) {
+                digest.update(path.relativize(c).toString().getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+                digest.update(Files.readAllBytes(c));
+            }
+            return digest.digest();
+        } catch (Exception e) {
+            return randomHash();
+        }
+    }
+
+    private static byte[] randomHash() {
+        return UUID.randomUUID().toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+}
@@ -44,4 +44,11 @@ public @interface Operation {
      * Handle the specified exceptions as a result of this operation invocation.
      */
     Class<? extends Throwable>[] handleExceptionsAsResult() default {};
+
+    /**
+     * Set it to {@code true} if this operation does not change the state of the testing data structure;
+     * {@code false} by default. Such operations commute with each other, which is used by verifiers
+     * in order not to check all their orders.
+     */
+    boolean readOnly() default false;
 }
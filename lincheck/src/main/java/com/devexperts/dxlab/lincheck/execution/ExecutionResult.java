@@ -12,6 +12,7 @@ package com.devexperts.dxlab.lincheck.execution;
 
 import com.devexperts.dxlab.lincheck.Result;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 
@@ -37,11 +38,89 @@ public class ExecutionResult {
      * @see ExecutionScenario#postExecution
      */
     public final List<Result> postResults;
+    // Happens-before clocks of the parallel part actors, see getParallelHBClocks();
+    // they are counted lazily from the actors start and end times if they are known
+    private volatile int[][][] parallelHBClocks;
+    // System.nanoTime() before and after the actors of the parallel part, the times of the i-th actor
+    // in thread t are stored at [t][invocation * n + i], where n is the number of actors in this thread
+    private final long[][] parallelStartTimes;
+    private final long[][] parallelEndTimes;
+    private final int invocation;
 
     public ExecutionResult(List<Result> initResults, List<List<Result>> parallelResults, List<Result> postResults) {
+        this(initResults, parallelResults, postResults, null);
+    }
+
+    public ExecutionResult(List<Result> initResults, List<List<Result>> parallelResults, List<Result> postResults,
+        int[][][] parallelHBClocks)
+    {
+        this(initResults, parallelResults, postResults, parallelHBClocks, null, null, 0);
+    }
+
+    /**
+     * Creates the results with the real-time order of the parallel part actors, which is determined
+     * by their start and end times. The times of the {@code i}-th actor in thread {@code t} are stored
+     * at {@code [t][invocation * n + i]}, where {@code n} is the number of actors in this thread,
+     * so that the times of all the invocations of a batch can be stored in the same arrays.
+     * The {@link #getParallelHBClocks() happens-before clocks} are counted from them on the first request.
+     */
+    public ExecutionResult(List<Result> initResults, List<List<Result>> parallelResults, List<Result> postResults,
+        long[][] parallelStartTimes, long[][] parallelEndTimes, int invocation)
+    {
+        this(initResults, parallelResults, postResults, null, parallelStartTimes, parallelEndTimes, invocation);
+    }
+
+    private ExecutionResult(List<Result> initResults, List<List<Result>> parallelResults, List<Result> postResults,
+        int[][][] parallelHBClocks, long[][] parallelStartTimes, long[][] parallelEndTimes, int invocation)
+    {
         this.initResults = initResults;
         this.parallelResults = parallelResults;
         this.postResults = postResults;
+        this.parallelHBClocks = parallelHBClocks;
+        this.parallelStartTimes = parallelStartTimes;
+        this.parallelEndTimes = parallelEndTimes;
+        this.invocation = invocation;
+    }
+
+    /**
+     * Returns happens-before clocks of the parallel part actors, {@code parallelHBClocks[t][i][t2]} is
+     * the number of the first actors in thread {@code t2} which have completed before
+     * the {@code i}-th actor in thread {@code t} has started. Returns {@code null} if the real-time
+     * order of the actors is unknown. The clocks are counted on the first call only.
+     * @see ExecutionScenario#parallelExecution
+     */
+    public int[][][] getParallelHBClocks() {
+        int[][][] clocks = parallelHBClocks;
+        if (clocks == null && parallelStartTimes != null)
+            parallelHBClocks = clocks = countHBClocks();
+        return clocks;
+    }
+
+    /**
+     * Actors in a thread start after the previous ones complete, thus the completed actors
+     * of another thread form a prefix which only grows with the actor index,
+     * and the clocks of each pair of threads are counted in a single merge-like pass.
+     */
+    private int[][][] countHBClocks() {
+        int nThreads = parallelResults.size();
+        int[][][] clocks = new int[nThreads][][];
+        for (int t = 0; t < nThreads; t++) {
+            int nActors = parallelResults.get(t).size();
+            clocks[t] = new int[nActors][nThreads];
+            for (int t2 = 0; t2 < nThreads; t2++) {
+                if (t2 == t)
+                    continue;
+                int nActors2 = parallelResults.get(t2).size();
+                int completed = 0;
+                for (int i = 0; i < nActors; i++) {
+                    long startTime = parallelStartTimes[t][invocation * nActors + i];
+                    while (completed < nActors2 && startTime > parallelEndTimes[t2][invocation * nActors2 + completed])
+                        completed++;
+                    clocks[t][i][t2] = completed;
+                }
+            }
+        }
+        return clocks;
     }
 
     @Override
@@ -55,11 +134,12 @@ public class ExecutionResult {
         ExecutionResult that = (ExecutionResult) o;
         return Objects.equals(initResults, that.initResults) &&
             Objects.equals(parallelResults, that.parallelResults) &&
-            Objects.equals(postResults, that.postResults);
+            Objects.equals(postResults, that.postResults) &&
+            Arrays.deepEquals(getParallelHBClocks(), that.getParallelHBClocks());
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(initResults, parallelResults, postResults);
+        return Objects.hash(initResults, parallelResults, postResults) * 31 + Arrays.deepHashCode(getParallelHBClocks());
     }
 }
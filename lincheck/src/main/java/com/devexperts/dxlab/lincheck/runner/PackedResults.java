@@ -0,0 +1,108 @@
+/*
+ * Lincheck - Linearizability checker
+ *
+ * Copyright (C) 2015-2022 Devexperts, LLC
+ * Copyright (C) 2023 Devexperts Ireland Limited
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed with this file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.devexperts.dxlab.lincheck.runner;
+
+import com.devexperts.dxlab.lincheck.Result;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * The results of one thread in one invocation, which are stored in the same form
+ * as in the {@link TestThreadExecution} results buffer: the result types (see {@code TestThreadExecution.RESULT_*}),
+ * the primitive values as {@code long}, and the objects and the exception classes.
+ * The arrays are copied from the buffer once per batch and are shared between the invocations of the batch.
+ * <p>
+ * {@link Result} objects are created on the first access only, thus they are not created at all
+ * if the results are found in the cache of verified ones without materializing them (see {@code CachedVerifier}).
+ */
+public final class PackedResults extends AbstractList<Result> implements RandomAccess {
+    private final byte[] types;
+    private final long[] primitives;
+    private final Object[] objects;
+    private final int offset;
+    private final int size;
+    // Created on the first access, the races are benign since the results are immutable
+    private Result[] results;
+
+    PackedResults(byte[] types, long[] primitives, Object[] objects, int offset, int size) {
+        this.types = types;
+        this.primitives = primitives;
+        this.objects = objects;
+        this.offset = offset;
+        this.size = size;
+    }
+
+    /**
+     * Returns the type of the {@code i}-th result, one of {@code TestThreadExecution.RESULT_*} constants.
+     */
+    public byte getType(int i) {
+        return types[offset + checkIndex(i)];
+    }
+
+    /**
+     * Returns the value of the {@code i}-th result if it is primitive, floating-point values are stored as raw bits.
+     */
+    public long getPrimitive(int i) {
+        return primitives[offset + checkIndex(i)];
+    }
+
+    /**
+     * Returns the value of the {@code i}-th result if it is an object, or the exception class.
+     */
+    public Object getObject(int i) {
+        return objects[offset + checkIndex(i)];
+    }
+
+    @Override
+    public Result get(int i) {
+        checkIndex(i);
+        Result[] results = this.results;
+        if (results == null)
+            this.results = results = new Result[size];
+        Result r = results[i];
+        if (r == null)
+            results[i] = r = createResult(offset + i);
+        return r;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    private int checkIndex(int i) {
+        if (i < 0 || i >= size)
+            throw new IndexOutOfBoundsException("Index: " + i + ", size: " + size);
+        return i;
+    }
+
+    private Result createResult(int index) {
+        long p = primitives[index];
+        switch (types[index]) {
+        case TestThreadExecution.RESULT_VOID: return Result.createVoidResult();
+        case TestThreadExecution.RESULT_BOOLEAN: return Result.createValueResult(p != 0);
+        case TestThreadExecution.RESULT_BYTE: return Result.createValueResult((byte) p);
+        case TestThreadExecution.RESULT_CHAR: return Result.createValueResult((char) p);
+        case TestThreadExecution.RESULT_SHORT: return Result.createValueResult((short) p);
+        case TestThreadExecution.RESULT_INT: return Result.createValueResult((int) p);
+        case TestThreadExecution.RESULT_LONG: return Result.createValueResult(p);
+        case TestThreadExecution.RESULT_FLOAT: return Result.createValueResult(Float.intBitsToFloat((int) p));
+        case TestThreadExecution.RESULT_DOUBLE: return Result.createValueResult(Double.longBitsToDouble(p));
+        case TestThreadExecution.RESULT_OBJECT: return Result.createValueResult(objects[index]);
+        case TestThreadExecution.RESULT_EXCEPTION:
+            @SuppressWarnings("unchecked")
+            Class<? extends Throwable> tClazz = (Class<? extends Throwable>) objects[index];
+            return Result.createExceptionResult(tClazz);
+        default: throw new IllegalStateException("Unknown result type: " + types[index]);
+        }
+    }
+}
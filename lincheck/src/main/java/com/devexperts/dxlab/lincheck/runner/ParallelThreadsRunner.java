@@ -20,23 +20,53 @@ import com.devexperts.dxlab.lincheck.strategy.Strategy;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * This runner executes parallel scenario' part in different threads.
  * It is pretty useful for stress testing or if you do not care about context switches.
+ * <p>
+ * The test threads stay resident during the runner's lifetime and spin on the shared
+ * invocation epoch, so that starting an invocation does not require submitting tasks
+ * to the executor and waiting for futures. All threads pass the start barrier before
+ * executing their actors, which makes them run the parallel part simultaneously.
+ * <p>
+ * Several invocations can be handed off to the test threads at once via {@link #runBatch(int)},
+ * in this case the threads pass the start barrier before each invocation of the batch.
  */
 public class ParallelThreadsRunner extends Runner {
+    // Test threads are shared between all runners in order not to create and destroy
+    // them on every iteration. Idle threads are terminated after the default keep-alive time.
+    private static final ExecutorService TEST_THREADS_EXECUTOR = Executors.newCachedThreadPool(ParallelThreadsRunner::newTestThread);
+    private static final AtomicInteger createdTestThreads = new AtomicInteger();
+    private static final AtomicLong testThreadsCreationTimeNanos = new AtomicLong();
+
+    // Spin loops busy-wait at first, then yield the processor, and park at last.
+    private static final int SPINS_BEFORE_YIELD = 1_000;
+    private static final int SPINS_BEFORE_PARK = 10_000;
+    private static final long PARK_NANOS = 50_000;
+
+    private final int nThreads;
     private final List<TestThreadExecution> testThreadExecutions;
-    private final ExecutorService executor;
+    // The first exception thrown by a test thread in the current batch
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    // Incremented to start the next batch of invocations; the test threads spin on it
+    private volatile int epoch;
+    private volatile boolean closed;
+    private final AtomicInteger started = new AtomicInteger();
+    private final AtomicInteger finished = new AtomicInteger();
+    private boolean testThreadsSubmitted;
 
     public ParallelThreadsRunner(ExecutionScenario scenario, Strategy strategy, Class<?> testClass, List<int[]> waits)
     {
         super(scenario, strategy, testClass);
-        int nThreads = scenario.parallelExecution.size();
+        nThreads = scenario.parallelExecution.size();
         // Create TestThreadExecution's
         boolean waitsEnabled = waits != null;
         testThreadExecutions = new ArrayList<>(nThreads);
@@ -50,50 +80,168 @@ public class ParallelThreadsRunner extends Runner {
                 testThreadExecutions.get(t).waits = waits.get(t);
             }
         }
-        // Fixed thread pool executor to run TestThreadExecution
-        executor = Executors.newFixedThreadPool(nThreads, TestThread::new);
     }
 
     @Override
     public ExecutionResult run() throws InterruptedException {
-        Object testInstance = Utils.createTestInstance(testClass);
-        testThreadExecutions.forEach(ex -> ex.testInstance = testInstance);
-        // Run init part
-        List<Result> initResults = Utils.executeActors(testInstance, scenario.initExecution);
-        // Run parallel part
-        List<List<Result>> parallelResults = executor.invokeAll(testThreadExecutions).stream() // get futures
-            .map(f -> {
-                try {
-                    return Arrays.asList(f.get()); // wait and get results
-                } catch (InterruptedException | ExecutionException e) {
-                    throw new IllegalStateException(e);
-                }
-            }).collect(Collectors.toList());
-        // Run post part
-        List<Result> postResults = Utils.executeActors(testInstance, scenario.postExecution);
-        // Return the execution result
-        return new ExecutionResult(initResults, parallelResults, postResults);
+        return runBatch(1).get(0);
+    }
+
+    @Override
+    public List<ExecutionResult> runBatch(int invocations) throws InterruptedException {
+        submitTestThreadsIfNeeded();
+        // Create test instances and run init parts
+        Object[] testInstances = new Object[invocations];
+        List<List<Result>> initResults = new ArrayList<>(invocations);
+        for (int i = 0; i < invocations; i++) {
+            testInstances[i] = Utils.createTestInstance(testClass);
+            initResults.add(Utils.executeActors(testInstances[i], scenario.initExecution));
+        }
+        testThreadExecutions.forEach(ex -> ex.prepare(testInstances));
+        // Run parallel parts
+        failure.set(null);
+        started.set(0);
+        finished.set(0);
+        epoch++; // start the batch, the only writer is this thread
+        for (int spins = 0; finished.get() < nThreads; spins++) {
+            if (Thread.interrupted())
+                throw new InterruptedException();
+            backoff(spins);
+        }
+        if (failure.get() != null)
+            throw new IllegalStateException(failure.get());
+        // Run post parts and collect the execution results, the results buffers are reused
+        // in the next batch, thus they are copied once for the whole batch
+        // together with the actors start and end times, which determine the happens-before clocks
+        PackedResults[][] batchResults = new PackedResults[nThreads][];
+        long[][] startTimes = new long[nThreads][];
+        long[][] endTimes = new long[nThreads][];
+        for (int t = 0; t < nThreads; t++) {
+            TestThreadExecution ex = testThreadExecutions.get(t);
+            batchResults[t] = ex.copyResults(invocations);
+            startTimes[t] = Arrays.copyOf(ex.startTimes, invocations * ex.nActors);
+            endTimes[t] = Arrays.copyOf(ex.endTimes, invocations * ex.nActors);
+        }
+        List<ExecutionResult> executionResults = new ArrayList<>(invocations);
+        for (int i = 0; i < invocations; i++) {
+            List<Result>[] parallelResults = new PackedResults[nThreads];
+            for (int t = 0; t < nThreads; t++)
+                parallelResults[t] = batchResults[t][i];
+            List<Result> postResults = Utils.executeActors(testInstances[i], scenario.postExecution);
+            executionResults.add(new ExecutionResult(initResults.get(i), Arrays.asList(parallelResults), postResults,
+                startTimes, endTimes, i));
+        }
+        return executionResults;
+    }
+
+    private void submitTestThreadsIfNeeded() {
+        if (testThreadsSubmitted)
+            return;
+        testThreadsSubmitted = true;
+        for (int t = 0; t < nThreads; t++) {
+            int iThread = t;
+            TEST_THREADS_EXECUTOR.execute(() -> runTestThread(iThread));
+        }
+    }
+
+    /**
+     * The main loop of the test thread, which executes
+     * the next batch of {@link TestThreadExecution} invocations on every epoch increment.
+     */
+    private void runTestThread(int iThread) {
+        TestThreadExecution ex = testThreadExecutions.get(iThread);
+        int lastEpoch = 0;
+        while (true) {
+            // Wait for the next invocation
+            for (int spins = 0; epoch == lastEpoch; spins++)
+                backoff(spins);
+            if (closed)
+                return;
+            lastEpoch = epoch;
+            // Execute actors and report completion
+            try {
+                ex.runInvocations();
+            } catch (Throwable e) {
+                // Other threads stop at the next start barrier
+                failure.compareAndSet(null, e);
+            }
+            finished.incrementAndGet();
+        }
+    }
+
+    private static void backoff(int spins) {
+        if (spins < SPINS_BEFORE_YIELD)
+            return;
+        if (spins < SPINS_BEFORE_PARK)
+            Thread.yield();
+        else
+            LockSupport.parkNanos(PARK_NANOS);
     }
 
+    /**
+     * Binds the current test thread to {@code iThread} and waits for other threads,
+     * so that all of them start the invocation simultaneously.
+     */
     @Override
     public void onStart(int iThread) {
         super.onStart(iThread);
         ((TestThread) Thread.currentThread()).iThread = iThread;
+        // Every thread arrives once per invocation, so the barrier
+        // for the current invocation is passed when the counter reaches
+        // the nearest multiple of the number of threads
+        int arrived = started.incrementAndGet();
+        int expected = ((arrived - 1) / nThreads + 1) * nThreads;
+        for (int spins = 0; started.get() < expected; spins++) {
+            if (failure.get() != null)
+                throw new IllegalStateException("Another test thread has failed");
+            backoff(spins);
+        }
     }
 
     @Override
     public void close() {
-        executor.shutdown();
+        closed = true;
+        epoch++; // wake up the test threads, they return to the shared executor
+    }
+
+    private static Thread newTestThread(Runnable r) {
+        // The executor starts the thread right after its creation, thus the time
+        // till the first run of the task includes the native thread start as well
+        long creationTime = System.nanoTime();
+        return new TestThread(() -> {
+            testThreadsCreationTimeNanos.addAndGet(System.nanoTime() - creationTime);
+            r.run();
+        }, createdTestThreads.incrementAndGet());
+    }
+
+    /**
+     * Returns the total number of {@link TestThread}s created in this JVM.
+     * Threads are shared between runners, so this number grows
+     * only if more threads than before are used simultaneously.
+     */
+    public static int getCreatedTestThreads() {
+        return createdTestThreads.get();
+    }
+
+    /**
+     * Returns the total time spent on creating and starting {@link TestThread}s in this JVM, in nanoseconds,
+     * which is measured from the thread construction till the thread begins executing.
+     */
+    public static long getTestThreadsCreationTimeNanos() {
+        return testThreadsCreationTimeNanos.get();
     }
 
     /**
      * All {@link TestThreadExecution}s are executing in this threads.
+     * These threads are shared between runners, the current
+     * thread number is re-bound on every {@link #onStart(int)} call.
      */
-    public class TestThread extends Thread {
+    public static class TestThread extends Thread {
         public int iThread;
 
-        private TestThread(Runnable r) {
-            super(r);
+        private TestThread(Runnable r, int id) {
+            super(r, "TestThread-" + id);
+            setDaemon(true);
         }
     }
 }
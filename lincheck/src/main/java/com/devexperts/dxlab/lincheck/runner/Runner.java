@@ -18,6 +18,9 @@ import com.devexperts.dxlab.lincheck.strategy.Strategy;
 import com.devexperts.jagent.ClassInfo;
 import org.objectweb.asm.ClassVisitor;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Runner determines how to run your concurrent test. In order to support techniques
  * like fibers, it may require code transformation, so {@link #needsTransformation()}
@@ -28,11 +31,14 @@ public abstract class Runner {
     protected final ExecutionScenario scenario;
     protected final Class<?> testClass;
     public final ExecutionClassLoader classLoader;
+    // Whether the generated byte-code should be checked, see Strategy.verifyBytecode()
+    final boolean verifyBytecode;
 
     protected Runner(ExecutionScenario scenario, Strategy strategy, Class<?> testClass) {
         this.scenario = scenario;
+        this.verifyBytecode = strategy.verifyBytecode();
         classLoader = (this.needsTransformation() || strategy.needsTransformation()) ?
-            new TransformationClassLoader(strategy, this) : new ExecutionClassLoader();
+            new TransformationClassLoader(strategy, this) : ExecutionClassLoader.forTestClass(testClass);
         this.testClass = loadClass(testClass.getTypeName());
     }
 
@@ -71,6 +77,20 @@ public abstract class Runner {
      */
     public abstract ExecutionResult run() throws InterruptedException;
 
+    /**
+     * Runs the specified number of invocations in a row.
+     * Runs them one by one via {@link #run()} by default,
+     * runners should override this method if they can execute
+     * several invocations cheaper than separately.
+     * @return the obtained results, one per invocation
+     */
+    public List<ExecutionResult> runBatch(int invocations) throws InterruptedException {
+        List<ExecutionResult> results = new ArrayList<>(invocations);
+        for (int i = 0; i < invocations; i++)
+            results.add(run());
+        return results;
+    }
+
     /**
      * This method is invoked by every test thread as the first operation.
      * @param iThread number of invoking thread
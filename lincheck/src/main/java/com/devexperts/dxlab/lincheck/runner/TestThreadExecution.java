@@ -12,6 +12,7 @@ package com.devexperts.dxlab.lincheck.runner;
 
 import com.devexperts.dxlab.lincheck.Result;
 
+import java.util.Arrays;
 import java.util.concurrent.Callable;
 
 /**
@@ -21,16 +22,92 @@ import java.util.concurrent.Callable;
  * <p> This class should be public for having access from generated classes.
  */
 public abstract class TestThreadExecution implements Callable<Result[]> {
+    // Result types which are stored to resultTypes, the generated code writes them directly
+    public static final byte RESULT_VOID = 0;
+    public static final byte RESULT_BOOLEAN = 1;
+    public static final byte RESULT_BYTE = 2;
+    public static final byte RESULT_CHAR = 3;
+    public static final byte RESULT_SHORT = 4;
+    public static final byte RESULT_INT = 5;
+    public static final byte RESULT_LONG = 6;
+    public static final byte RESULT_FLOAT = 7;
+    public static final byte RESULT_DOUBLE = 8;
+    public static final byte RESULT_OBJECT = 9;
+    public static final byte RESULT_EXCEPTION = 10;
+
     // The following fields are assigned in TestThreadExecutionGenerator
     protected Runner runner;
+    protected int iThread;
+    protected Object[] objArgs; // arguments of all actors in a row
+    protected int nActors;
+    // The following fields are assigned before every batch of invocations, see prepare(..)
     public Object testInstance;
-    protected Object[] objArgs;
+    public Object[] testInstances;
+    // Preallocated results buffer, the result of the i-th actor
+    // in the inv-th invocation is stored at [inv * nActors + i].
+    // Primitive values are stored as long (floating-point ones as raw bits),
+    // object values and exception classes are stored to objectResults.
+    public byte[] resultTypes;
+    public long[] primitiveResults;
+    public Object[] objectResults;
+    // System.nanoTime() before and after every actor, stored at the same indices as results
+    public long[] startTimes;
+    public long[] endTimes;
     public int[] waits; // for StressStrategy
 
+    /**
+     * Sets the test instances for the next batch of invocations, one per invocation,
+     * and reallocates the results buffer if it is too small for them.
+     */
+    public void prepare(Object[] testInstances) {
+        this.testInstances = testInstances;
+        int size = testInstances.length * nActors;
+        if (resultTypes == null || resultTypes.length < size) {
+            resultTypes = new byte[size];
+            primitiveResults = new long[size];
+            objectResults = new Object[size];
+            startTimes = new long[size];
+            endTimes = new long[size];
+        }
+    }
+
+    /**
+     * Executes the actors for each of {@link #testInstances} in a row
+     * and stores their results to the results buffer.
+     * The generated implementation runs all the invocations in a single loop,
+     * so that the JIT compiles it once and the runner hands the work off to
+     * the test thread once per batch.
+     */
+    public abstract void runInvocations();
+
+    /**
+     * Copies the results of the last batch of invocations, since the buffer is reused
+     * by the next batch, and returns their views for each invocation. {@link Result}
+     * objects are not created here, see {@link PackedResults}.
+     */
+    public PackedResults[] copyResults(int invocations) {
+        int size = invocations * nActors;
+        byte[] types = Arrays.copyOf(resultTypes, size);
+        long[] primitives = Arrays.copyOf(primitiveResults, size);
+        Object[] objects = Arrays.copyOf(objectResults, size);
+        PackedResults[] results = new PackedResults[invocations];
+        for (int inv = 0; inv < invocations; inv++)
+            results[inv] = new PackedResults(types, primitives, objects, inv * nActors, nActors);
+        return results;
+    }
+
+    /**
+     * Executes the actors on {@link #testInstance} once and returns their results.
+     */
     // It is better to return List<Result>,
     // but such implementation requires to have a synthetic
     // method to support generics and the byte-code generation
     // is more bug-prone. If you need to use
     // List<Result>, see Arrays.asList(..) method.
-    public abstract Result[] call();
+    @Override
+    public Result[] call() {
+        prepare(new Object[] {testInstance});
+        runInvocations();
+        return copyResults(1)[0].toArray(new Result[nActors]);
+    }
 }
@@ -11,7 +11,6 @@
 package com.devexperts.dxlab.lincheck.runner;
 
 import com.devexperts.dxlab.lincheck.Actor;
-import com.devexperts.dxlab.lincheck.Result;
 import com.devexperts.dxlab.lincheck.Utils;
 import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.ClassWriter;
@@ -23,7 +22,9 @@ import org.objectweb.asm.commons.TryCatchBlockSorter;
 import org.objectweb.asm.util.CheckClassAdapter;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.objectweb.asm.Opcodes.*;
 
@@ -51,13 +52,16 @@ public class TestThreadExecutionGenerator {
     private static final Type UTILS_TYPE = Type.getType(Utils.class);
     private static final Method UTILS_CONSUME_CPU = new Method("consumeCPU", Type.VOID_TYPE, new Type[] {Type.INT_TYPE});
 
-    private static final Type RESULT_TYPE = Type.getType(Result.class);
-    private static final Type RESULT_ARRAY_TYPE = Type.getType(Result[].class);
-    private static final Method RESULT_CREATE_VOID_RESULT = new Method("createVoidResult", RESULT_TYPE, NO_ARGS);
-    private static final Method RESULT_CREATE_VALUE_RESULT = new Method("createValueResult", RESULT_TYPE, new Type[] {OBJECT_TYPE});
-    private static final Method RESULT_CREATE_EXCEPTION_RESULT = new Method("createExceptionResult", RESULT_TYPE, new Type[] {CLASS_TYPE});
+    private static final Type BYTE_ARRAY_TYPE = Type.getType(byte[].class);
+    private static final Type LONG_ARRAY_TYPE = Type.getType(long[].class);
+    private static final Type FLOAT_TYPE = Type.getType(Float.class);
+    private static final Method FLOAT_TO_RAW_INT_BITS = new Method("floatToRawIntBits", Type.INT_TYPE, new Type[] {Type.FLOAT_TYPE});
+    private static final Type DOUBLE_TYPE = Type.getType(Double.class);
+    private static final Method DOUBLE_TO_RAW_LONG_BITS = new Method("doubleToRawLongBits", Type.LONG_TYPE, new Type[] {Type.DOUBLE_TYPE});
+    private static final Type SYSTEM_TYPE = Type.getType(System.class);
+    private static final Method SYSTEM_NANO_TIME = new Method("nanoTime", Type.LONG_TYPE, NO_ARGS);
 
-    private static int generatedClassNumber = 0;
+    private static final AtomicInteger generatedClassNumber = new AtomicInteger();
 
     static {
         try {
@@ -68,33 +72,55 @@ public class TestThreadExecutionGenerator {
     }
 
     /**
-     * Creates a {@link TestThreadExecution} instance with specified {@link TestThreadExecution#call()} implementation.
+     * Creates a {@link TestThreadExecution} instance with specified {@link TestThreadExecution#runInvocations()} implementation.
+     * The generated class depends only on the actors' methods and handled exceptions, but not on their arguments,
+     * so that it is shared between structurally identical threads and stays compiled by JIT.
      */
     public static TestThreadExecution create(Runner runner, int iThread, List<Actor> actors, boolean waitsEnabled) {
-        String className = TestThreadExecution.class.getCanonicalName() + generatedClassNumber++;
-        String internalClassName = className.replace('.', '/');
-        List<Object> objArgs = new ArrayList<>();
-        Class<? extends TestThreadExecution> clz = runner.classLoader.defineClass(className,
-            generateClass(internalClassName, Type.getType(runner.testClass), iThread, actors, objArgs, waitsEnabled));
+        Class<? extends TestThreadExecution> clz = runner.classLoader.getOrDefineExecutionClass(
+            executionShape(runner.testClass, actors, waitsEnabled),
+            () -> {
+                String className = TestThreadExecution.class.getCanonicalName() + generatedClassNumber.getAndIncrement();
+                String internalClassName = className.replace('.', '/');
+                return runner.classLoader.defineClass(className,
+                    generateClass(internalClassName, Type.getType(runner.testClass), actors, waitsEnabled,
+                        runner.verifyBytecode));
+            });
         try {
             TestThreadExecution execution = clz.newInstance();
             execution.runner = runner;
-            execution.objArgs = objArgs.toArray();
+            execution.iThread = iThread;
+            execution.objArgs = actors.stream().flatMap(actor -> Arrays.stream(actor.arguments)).toArray();
+            execution.nActors = actors.size();
             return execution;
         } catch (InstantiationException | IllegalAccessException e) {
             throw new IllegalStateException("Cannot initialize generated execution class", e);
         }
     }
 
-    private static byte[] generateClass(String internalClassName, Type testClassType, int iThread, List<Actor> actors,
-        List<Object> objArgs, boolean waitsEnabled)
+    /**
+     * Returns the key which identifies the generated code for the specified actors.
+     */
+    private static List<Object> executionShape(Class<?> testClass, List<Actor> actors, boolean waitsEnabled) {
+        List<Object> shape = new ArrayList<>(2 + 2 * actors.size());
+        shape.add(testClass);
+        shape.add(waitsEnabled);
+        for (Actor actor : actors) {
+            shape.add(actor.method);
+            shape.add(actor.handledExceptions);
+        }
+        return shape;
+    }
+
+    private static byte[] generateClass(String internalClassName, Type testClassType, List<Actor> actors,
+        boolean waitsEnabled, boolean verifyBytecode)
     {
         ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
-        CheckClassAdapter cca = new CheckClassAdapter(cw, false);
-        cca.visit(52, ACC_PUBLIC + ACC_SUPER, internalClassName, null, TEST_THREAD_EXECUTION_TYPE.getInternalName(), null);
-        generateConstructor(cca);
-        generateRun(cca, testClassType, iThread, actors, objArgs, waitsEnabled);
-        cca.visitEnd();
+        ClassVisitor cv = verifyBytecode ? new CheckClassAdapter(cw, false) : cw;
+        cv.visit(52, ACC_PUBLIC + ACC_SUPER, internalClassName, null, TEST_THREAD_EXECUTION_TYPE.getInternalName(), null);
+        generateConstructor(cv);
+        generateRunInvocations(cv, testClassType, actors, waitsEnabled);
+        cv.visitEnd();
         return cw.toByteArray();
     }
 
@@ -108,27 +134,57 @@ public class TestThreadExecutionGenerator {
         mv.visitEnd();
     }
 
-    private static void generateRun(ClassVisitor cv, Type testType, int iThread, List<Actor> actors, List<Object> objArgs, boolean waitsEnabled) {
+    private static void generateRunInvocations(ClassVisitor cv, Type testType, List<Actor> actors,
+        boolean waitsEnabled)
+    {
         int access = ACC_PUBLIC;
-        Method m = new Method("call", RESULT_ARRAY_TYPE, NO_ARGS);
+        Method m = new Method("runInvocations", Type.VOID_TYPE, NO_ARGS);
         GeneratorAdapter mv = new GeneratorAdapter(access, m,
             // Try-catch blocks sorting is required
             new TryCatchBlockSorter(cv.visitMethod(access, m.getName(), m.getDescriptor(), null, null),
                 access, m.getName(), m.getDescriptor(), null, null)
         );
         mv.visitCode();
-        // Create Result[] array and store it to a local variable
-        int resLocal = createResultArray(mv, actors.size());
+        // Store test instances and results buffer to local variables
+        int testInstancesLocal = loadFieldToLocal(mv, "testInstances", OBJECT_ARRAY_TYPE);
+        int resultTypesLocal = loadFieldToLocal(mv, "resultTypes", BYTE_ARRAY_TYPE);
+        int primitiveResultsLocal = loadFieldToLocal(mv, "primitiveResults", LONG_ARRAY_TYPE);
+        int objectResultsLocal = loadFieldToLocal(mv, "objectResults", OBJECT_ARRAY_TYPE);
+        int startTimesLocal = loadFieldToLocal(mv, "startTimes", LONG_ARRAY_TYPE);
+        int endTimesLocal = loadFieldToLocal(mv, "endTimes", LONG_ARRAY_TYPE);
+        int objArgsLocal = loadFieldToLocal(mv, "objArgs", OBJECT_ARRAY_TYPE);
+        int iThreadLocal = loadFieldToLocal(mv, "iThread", Type.INT_TYPE);
+        // Number of current invocation (starts with 0)
+        int invLocal = mv.newLocal(Type.INT_TYPE);
+        mv.push(0);
+        mv.storeLocal(invLocal);
+        int testInstanceLocal = mv.newLocal(testType);
+        // Index of the current operation result in the results buffer
+        int iLocal = mv.newLocal(Type.INT_TYPE);
+        // Loop through the invocations
+        Label loopStart = mv.mark();
+        Label loopEnd = mv.newLabel();
+        mv.loadLocal(invLocal);
+        mv.loadLocal(testInstancesLocal);
+        mv.arrayLength();
+        mv.ifICmp(GeneratorAdapter.GE, loopEnd);
+        // Load test instance for the current invocation
+        mv.loadLocal(testInstancesLocal);
+        mv.loadLocal(invLocal);
+        mv.arrayLoad(OBJECT_TYPE);
+        mv.checkCast(testType);
+        mv.storeLocal(testInstanceLocal);
         // Call runner's onStart(iThread) method
         mv.loadThis();
         mv.getField(TEST_THREAD_EXECUTION_TYPE, "runner", RUNNER_TYPE);
-        mv.push(iThread);
+        mv.loadLocal(iThreadLocal);
         mv.invokeVirtual(RUNNER_TYPE, RUNNER_ON_START_METHOD);
-        // Number of current operation (starts with 0)
-        int iLocal = mv.newLocal(Type.INT_TYPE);
-        mv.push(0);
+        mv.loadLocal(invLocal);
+        mv.push(actors.size());
+        mv.math(GeneratorAdapter.MUL, Type.INT_TYPE);
         mv.storeLocal(iLocal);
         // Invoke actors
+        int nArgs = 0; // number of arguments loaded from objArgs
         for (int i = 0; i < actors.size(); i++) {
             Actor actor = actors.get(i);
             // Add busy-wait before operation execution (for non-first operations only)
@@ -139,6 +195,8 @@ public class TestThreadExecutionGenerator {
                 mv.arrayLoad(Type.INT_TYPE);
                 mv.invokeStatic(UTILS_TYPE, UTILS_CONSUME_CPU);
             }
+            // Record the start time right before the operation
+            storeNanoTime(mv, startTimesLocal, iLocal);
             // Start of try-catch block for exceptions which this actor should handle
             Label start, end = null, handler = null, handlerEnd = null;
             if (actor.handlesExceptions()) {
@@ -150,99 +208,134 @@ public class TestThreadExecutionGenerator {
                     mv.visitTryCatchBlock(start, end, handler, Type.getType(ec).getInternalName());
                 mv.visitLabel(start);
             }
-            // Load result array and index to store the current result
-            mv.loadLocal(resLocal);
-            mv.push(i);
+            // Load results array and index to store the current result
+            Class<?> returnType = actor.method.getReturnType();
+            if (returnType != void.class) {
+                mv.loadLocal(returnType.isPrimitive() ? primitiveResultsLocal : objectResultsLocal);
+                mv.loadLocal(iLocal);
+            }
             // Load test instance
-            mv.loadThis();
-            mv.getField(TEST_THREAD_EXECUTION_TYPE, "testInstance", OBJECT_TYPE);
-            mv.checkCast(testType);
+            mv.loadLocal(testInstanceLocal);
             // Load arguments for operation
-            for (int j = 0; j < actor.arguments.length; j++) {
-                pushArgumentOnStack(mv, objArgs, actor.arguments[j], actor.method.getParameterTypes()[j]);
+            for (Class<?> argClass : actor.method.getParameterTypes()) {
+                pushArgumentOnStack(mv, objArgsLocal, nArgs++, argClass);
             }
             // Invoke operation
             Method actorMethod = Method.getMethod(actor.method);
             mv.invokeVirtual(testType, actorMethod);
-            // Create result
-            mv.box(actorMethod.getReturnType()); // box if needed
-            if (actor.method.getReturnType() == void.class) {
-                mv.pop();
-                mv.invokeStatic(RESULT_TYPE, RESULT_CREATE_VOID_RESULT);
-            } else {
-                mv.invokeStatic(RESULT_TYPE, RESULT_CREATE_VALUE_RESULT);
+            // Store result value to array without boxing
+            if (returnType != void.class) {
+                if (returnType.isPrimitive()) {
+                    if (returnType == float.class) {
+                        mv.invokeStatic(FLOAT_TYPE, FLOAT_TO_RAW_INT_BITS);
+                    } else if (returnType == double.class) {
+                        mv.invokeStatic(DOUBLE_TYPE, DOUBLE_TO_RAW_LONG_BITS);
+                    }
+                    if (returnType != long.class && returnType != double.class)
+                        mv.cast(Type.INT_TYPE, Type.LONG_TYPE);
+                    mv.arrayStore(Type.LONG_TYPE);
+                } else {
+                    mv.arrayStore(OBJECT_TYPE);
+                }
             }
-            // Store result to array
-            mv.arrayStore(RESULT_TYPE);
             // End of try-catch block
             if (actor.handlesExceptions()) {
                 mv.visitLabel(end);
+                storeResultType(mv, resultTypesLocal, iLocal, resultType(returnType));
                 mv.goTo(handlerEnd);
                 mv.visitLabel(handler);
-                storeExceptionResultFromThrowable(mv, resLocal, iLocal);
+                storeExceptionResultFromThrowable(mv, resultTypesLocal, objectResultsLocal, iLocal);
                 mv.visitLabel(handlerEnd);
+            } else {
+                storeResultType(mv, resultTypesLocal, iLocal, resultType(returnType));
             }
+            // Record the end time right after the operation
+            storeNanoTime(mv, endTimesLocal, iLocal);
             // Increment number of current operation
             mv.iinc(iLocal, 1);
         }
         // Call runner's onFinish(iThread) method
         mv.loadThis();
         mv.getField(TEST_THREAD_EXECUTION_TYPE, "runner", RUNNER_TYPE);
-        mv.push(iThread);
+        mv.loadLocal(iThreadLocal);
         mv.invokeVirtual(RUNNER_TYPE, RUNNER_ON_FINISH_METHOD);
-        // Return results
-        mv.loadThis();
-        mv.loadLocal(resLocal);
-        mv.returnValue();
+        // Go to the next invocation
+        mv.iinc(invLocal, 1);
+        mv.goTo(loopStart);
+        mv.visitLabel(loopEnd);
+        mv.visitInsn(RETURN);
         mv.visitMaxs(1, 1);
         mv.visitEnd();
     }
 
-    private static void storeExceptionResultFromThrowable(GeneratorAdapter mv, int resLocal, int iLocal) {
+    private static int loadFieldToLocal(GeneratorAdapter mv, String fieldName, Type fieldType) {
+        int local = mv.newLocal(fieldType);
+        mv.loadThis();
+        mv.getField(TEST_THREAD_EXECUTION_TYPE, fieldName, fieldType);
+        mv.storeLocal(local);
+        return local;
+    }
+
+    private static void storeExceptionResultFromThrowable(GeneratorAdapter mv, int resultTypesLocal,
+        int objectResultsLocal, int iLocal)
+    {
         int eLocal = mv.newLocal(THROWABLE_TYPE);
         mv.storeLocal(eLocal);
-        mv.loadLocal(resLocal);
+        mv.loadLocal(objectResultsLocal);
         mv.loadLocal(iLocal);
         mv.loadLocal(eLocal);
         mv.invokeVirtual(OBJECT_TYPE, OBJECT_GET_CLASS);
-        mv.invokeStatic(RESULT_TYPE, RESULT_CREATE_EXCEPTION_RESULT);
-        mv.arrayStore(RESULT_TYPE);
+        mv.arrayStore(OBJECT_TYPE);
+        storeResultType(mv, resultTypesLocal, iLocal, TestThreadExecution.RESULT_EXCEPTION);
     }
 
-    private static int createResultArray(GeneratorAdapter mv, int size) {
-        int resLocal = mv.newLocal(RESULT_ARRAY_TYPE);
-        mv.push(size);
-        mv.newArray(RESULT_TYPE);
-        mv.storeLocal(resLocal);
-        return resLocal;
+    private static void storeResultType(GeneratorAdapter mv, int resultTypesLocal, int iLocal, byte resultType) {
+        mv.loadLocal(resultTypesLocal);
+        mv.loadLocal(iLocal);
+        mv.push(resultType);
+        mv.arrayStore(Type.BYTE_TYPE);
+    }
+
+    private static void storeNanoTime(GeneratorAdapter mv, int timesLocal, int iLocal) {
+        mv.loadLocal(timesLocal);
+        mv.loadLocal(iLocal);
+        mv.invokeStatic(SYSTEM_TYPE, SYSTEM_NANO_TIME);
+        mv.arrayStore(Type.LONG_TYPE);
+    }
+
+    private static byte resultType(Class<?> returnType) {
+        if (returnType == void.class) {
+            return TestThreadExecution.RESULT_VOID;
+        } else if (returnType == boolean.class) {
+            return TestThreadExecution.RESULT_BOOLEAN;
+        } else if (returnType == byte.class) {
+            return TestThreadExecution.RESULT_BYTE;
+        } else if (returnType == char.class) {
+            return TestThreadExecution.RESULT_CHAR;
+        } else if (returnType == short.class) {
+            return TestThreadExecution.RESULT_SHORT;
+        } else if (returnType == int.class) {
+            return TestThreadExecution.RESULT_INT;
+        } else if (returnType == long.class) {
+            return TestThreadExecution.RESULT_LONG;
+        } else if (returnType == float.class) {
+            return TestThreadExecution.RESULT_FLOAT;
+        } else if (returnType == double.class) {
+            return TestThreadExecution.RESULT_DOUBLE;
+        } else {
+            return TestThreadExecution.RESULT_OBJECT;
+        }
     }
 
-    private static void pushArgumentOnStack(GeneratorAdapter mv, List<Object> objArgs, Object arg, Class<?> argClass) {
-        if (argClass == boolean.class) {
-            mv.push((boolean) arg);
-        } else if (argClass == byte.class) {
-            mv.push((byte) arg);
-        } else if (argClass == char.class) {
-            mv.push((char) arg);
-        } else if (argClass == short.class) {
-            mv.push((short) arg);
-        } else if (argClass == int.class) {
-            mv.push((int) arg);
-        } else if (argClass == long.class) {
-            mv.push((long) arg);
-        } else if (argClass == float.class) {
-            mv.push((float) arg);
-        } else if (argClass == double.class) {
-            mv.push((double) arg);
-        } else if (argClass == String.class) {
-            mv.push((String) arg);
-        } else { // Object type
-            mv.loadThis(); // -> this
-            mv.getField(TEST_THREAD_EXECUTION_TYPE, "objArgs", OBJECT_ARRAY_TYPE); // this -> objArgs
-            mv.push(objArgs.size()); // objArgs -> objArgs, index
-            mv.arrayLoad(OBJECT_TYPE); // objArgs, index -> arg
-            mv.checkCast(Type.getType(argClass)); // cast object to argument type
-            objArgs.add(arg);
+    private static void pushArgumentOnStack(GeneratorAdapter mv, int objArgsLocal, int index, Class<?> argClass) {
+        mv.loadLocal(objArgsLocal); // -> objArgs
+        mv.push(index); // objArgs -> objArgs, index
+        mv.arrayLoad(OBJECT_TYPE); // objArgs, index -> arg
+        Type argType = Type.getType(argClass);
+        if (argClass.isPrimitive()) {
+            mv.unbox(argType); // cast object to the wrapper type and unbox it
+        } else {
+            mv.checkCast(argType); // cast object to argument type
         }
     }
 }
@@ -0,0 +1,161 @@
+/*
+ * Lincheck - Linearizability checker
+ *
+ * Copyright (C) 2015-2022 Devexperts, LLC
+ * Copyright (C) 2023 Devexperts Ireland Limited
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed with this file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.devexperts.dxlab.lincheck.strategy;
+
+import com.devexperts.dxlab.lincheck.execution.ExecutionResult;
+import com.devexperts.dxlab.lincheck.verifier.Verifier;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Verifies execution results in the worker threads, so that the strategy
+ * can run the next invocations meanwhile. The results are passed through
+ * a bounded queue, thus the strategy waits if the workers do not keep up.
+ * After the first incorrect results are found, the rest ones are skipped.
+ * <p>
+ * The workers are started on the first {@link #submit}, so that they are not leaked
+ * if the strategy fails to be constructed or is not run at all. Both {@link #complete()}
+ * and {@link #cancel()} wait for the workers, so that the verifier does not run
+ * the test code after the strategy is finished.
+ */
+class AsyncVerification {
+    private static final int QUEUE_CAPACITY_PER_THREAD = 16;
+    // The time to wait for the workers which verify results when the verification is cancelled
+    static final long CANCEL_TIMEOUT_MILLIS = 10_000;
+    // Workers are shared between all strategies in order not to create threads on every iteration
+    private static final ExecutorService VERIFIER_THREADS_EXECUTOR = Executors.newCachedThreadPool(new ThreadFactory());
+    // Tells the worker to stop
+    private static final ExecutionResult STOP = new ExecutionResult(null, null, null);
+
+    private final Verifier verifier;
+    private final int nThreads;
+    private final BlockingQueue<ExecutionResult> queue;
+    private final CountDownLatch stopped;
+    private final List<Future<?>> workers = new ArrayList<>();
+    private final AtomicReference<ExecutionResult> incorrectResults = new AtomicReference<>();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    // Both flags are accessed by the strategy thread only
+    private boolean started;
+    private boolean stopping;
+
+    AsyncVerification(Verifier verifier, int nThreads) {
+        this.verifier = verifier;
+        this.nThreads = nThreads;
+        this.queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY_PER_THREAD * nThreads);
+        this.stopped = new CountDownLatch(nThreads);
+    }
+
+    /**
+     * Adds the results to the verification queue, waits if the queue is full.
+     */
+    void submit(ExecutionResult results) throws InterruptedException {
+        if (!started) {
+            started = true;
+            for (int i = 0; i < nThreads; i++)
+                workers.add(VERIFIER_THREADS_EXECUTOR.submit(this::runWorker));
+        }
+        queue.put(results);
+    }
+
+    /**
+     * Returns the first found incorrect results, or {@code null} if all the verified ones are correct.
+     *
+     * @throws IllegalStateException if the verifier has failed with an exception.
+     */
+    ExecutionResult getIncorrectResults() {
+        Throwable e = failure.get();
+        if (e != null)
+            throw new IllegalStateException("Verification failed", e);
+        return incorrectResults.get();
+    }
+
+    /**
+     * Waits until all the submitted results are verified and stops the workers.
+     */
+    void complete() throws InterruptedException {
+        stop();
+        if (started)
+            stopped.await();
+    }
+
+    /**
+     * Skips the submitted results, stops the workers and waits for the ones which verify results
+     * at most {@link #CANCEL_TIMEOUT_MILLIS}. The workers are interrupted if they do not stop in time.
+     *
+     * @return {@code false} if the workers have not stopped in time.
+     */
+    boolean cancel() {
+        queue.clear();
+        try {
+            stop();
+            if (!started || stopped.await(CANCEL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS))
+                return true;
+            workers.forEach(w -> w.cancel(true));
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void stop() throws InterruptedException {
+        if (stopping)
+            return;
+        stopping = true;
+        if (!started)
+            return;
+        for (int i = 0; i < nThreads; i++)
+            queue.put(STOP);
+    }
+
+    private void runWorker() {
+        try {
+            while (true) {
+                ExecutionResult results = queue.take();
+                if (results == STOP)
+                    return;
+                if (incorrectResults.get() != null || failure.get() != null)
+                    continue; // the run is going to be cancelled
+                try {
+                    if (!verifier.verifyResults(results))
+                        incorrectResults.compareAndSet(null, results);
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            }
+        } catch (InterruptedException e) {
+            failure.compareAndSet(null, e);
+        } finally {
+            stopped.countDown();
+        }
+    }
+
+    private static class ThreadFactory implements java.util.concurrent.ThreadFactory {
+        private final AtomicInteger threadNumber = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "VerifierThread-" + threadNumber.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+}
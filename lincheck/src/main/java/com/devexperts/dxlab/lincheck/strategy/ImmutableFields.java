@@ -0,0 +1,104 @@
+/*
+ * Lincheck - Linearizability checker
+ *
+ * Copyright (C) 2015-2022 Devexperts, LLC
+ * Copyright (C) 2023 Devexperts Ireland Limited
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed with this file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.devexperts.dxlab.lincheck.strategy;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Determines the fields which cannot be modified concurrently, so that
+ * {@link ManagedStrategyTransformer} does not instrument accesses to them.
+ * These are final fields and the fields of the known immutable JDK classes.
+ * The fields are resolved as the JVM does, looking into the super classes and
+ * interfaces, which are read as system resources without loading them.
+ */
+final class ImmutableFields {
+    // Internal names of the JDK classes which instances are immutable
+    private static final Set<String> IMMUTABLE_CLASSES = new HashSet<>(Arrays.asList(
+        "java/lang/String", "java/lang/Boolean", "java/lang/Byte", "java/lang/Character", "java/lang/Short",
+        "java/lang/Integer", "java/lang/Long", "java/lang/Float", "java/lang/Double",
+        "java/math/BigInteger", "java/math/BigDecimal", "java/lang/Class"
+    ));
+
+    // Class internal name -> declared fields, shared between all transformers
+    private static final Map<String, DeclaredFields> declaredFields = new ConcurrentHashMap<>();
+
+    private ImmutableFields() {}
+
+    /**
+     * Returns {@code true} if the specified field cannot be modified concurrently.
+     * If the field cannot be resolved, it is considered mutable.
+     *
+     * @param owner the internal name of the class used in the field instruction.
+     * @param name the field name.
+     */
+    static boolean isImmutable(String owner, String name) {
+        DeclaredFields fields = getDeclaredFields(owner);
+        if (fields.all.contains(name))
+            return fields.immutable.contains(name);
+        for (String superType : fields.superTypes) {
+            if (isImmutable(superType, name))
+                return true;
+        }
+        return false;
+    }
+
+    private static DeclaredFields getDeclaredFields(String className) {
+        return declaredFields.computeIfAbsent(className, ImmutableFields::readDeclaredFields);
+    }
+
+    private static DeclaredFields readDeclaredFields(String className) {
+        ClassReader cr;
+        try {
+            cr = new ClassReader(className);
+        } catch (IOException e) {
+            return DeclaredFields.UNKNOWN;
+        }
+        DeclaredFields fields = new DeclaredFields();
+        boolean immutableClass = IMMUTABLE_CLASSES.contains(className);
+        cr.accept(new ClassVisitor(Opcodes.ASM5) {
+            @Override
+            public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+                if (superName != null)
+                    fields.superTypes.add(superName);
+                fields.superTypes.addAll(Arrays.asList(interfaces));
+            }
+
+            @Override
+            public FieldVisitor visitField(int access, String name, String desc, String signature, Object value) {
+                fields.all.add(name);
+                if (immutableClass || (access & Opcodes.ACC_FINAL) != 0)
+                    fields.immutable.add(name);
+                return null;
+            }
+        }, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+        return fields;
+    }
+
+    private static class DeclaredFields {
+        // The class cannot be read, thus its fields are unknown
+        static final DeclaredFields UNKNOWN = new DeclaredFields();
+
+        final Set<String> all = new HashSet<>();
+        final Set<String> immutable = new HashSet<>();
+        final Set<String> superTypes = new HashSet<>();
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Lincheck - Linearizability checker
+ *
+ * Copyright (C) 2015-2022 Devexperts, LLC
+ * Copyright (C) 2023 Devexperts Ireland Limited
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed with this file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.devexperts.dxlab.lincheck.strategy;
+
+import org.objectweb.asm.Attribute;
+import org.objectweb.asm.ByteVector;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * This class attribute is added by {@link ManagedStrategyTransformer} and stores the code locations
+ * and the numbers of instrumented and skipped shared variable accesses of the transformed class,
+ * so that they can be registered again when the transformed byte-code is loaded from the disk cache.
+ * The JVM ignores unknown attributes.
+ */
+class InstrumentationAttribute extends Attribute {
+    private static final String TYPE = "com.devexperts.dxlab.lincheck.Instrumentation";
+
+    // The source file of the class, null if it is unknown
+    String fileName;
+    // The numbers of instrumented and skipped shared variable accesses
+    int instrumentedAccesses;
+    int skippedAccesses;
+    // Code locations by their identifiers
+    final Map<Integer, StackTraceElement> codeLocations = new LinkedHashMap<>();
+
+    InstrumentationAttribute() {
+        super(TYPE);
+    }
+
+    @Override
+    protected Attribute read(ClassReader cr, int off, int len, char[] buf, int codeOff, Label[] labels) {
+        InstrumentationAttribute attr = new InstrumentationAttribute();
+        String className = cr.getClassName();
+        attr.fileName = cr.readUnsignedShort(off) == 0 ? null : cr.readUTF8(off, buf);
+        attr.instrumentedAccesses = cr.readInt(off + 2);
+        attr.skippedAccesses = cr.readInt(off + 6);
+        int n = cr.readInt(off + 10);
+        off += 14;
+        for (int i = 0; i < n; i++) {
+            int codeLocation = cr.readInt(off);
+            String methodName = cr.readUTF8(off + 4, buf);
+            int lineNumber = cr.readInt(off + 6);
+            attr.codeLocations.put(codeLocation, new StackTraceElement(className, methodName, attr.fileName, lineNumber));
+            off += 10;
+        }
+        return attr;
+    }
+
+    @Override
+    protected ByteVector write(ClassWriter cw, byte[] code, int len, int maxStack, int maxLocals) {
+        ByteVector bv = new ByteVector();
+        bv.putShort(fileName == null ? 0 : cw.newUTF8(fileName));
+        bv.putInt(instrumentedAccesses);
+        bv.putInt(skippedAccesses);
+        bv.putInt(codeLocations.size());
+        codeLocations.forEach((codeLocation, location) -> {
+            bv.putInt(codeLocation);
+            bv.putShort(cw.newUTF8(location.getMethodName()));
+            bv.putInt(location.getLineNumber());
+        });
+        return bv;
+    }
+}
@@ -11,6 +11,7 @@
 package com.devexperts.dxlab.lincheck.strategy;
 
 import com.devexperts.dxlab.lincheck.Reporter;
+import com.devexperts.dxlab.lincheck.TransformationClassLoader;
 import com.devexperts.dxlab.lincheck.execution.ExecutionResult;
 import com.devexperts.dxlab.lincheck.execution.ExecutionScenario;
 import com.devexperts.dxlab.lincheck.runner.ParallelThreadsRunner;
@@ -19,6 +20,8 @@ import com.devexperts.dxlab.lincheck.verifier.Verifier;
 import com.devexperts.jagent.ClassInfo;
 import org.objectweb.asm.ClassVisitor;
 
+import java.util.Set;
+
 /**
  * This is an abstract class for all managed strategies.
  * This abstraction helps to choose a proper {@link Runner},
@@ -32,10 +35,11 @@ public abstract class ManagedStrategy extends Strategy {
     protected final int nThreads;
 
     private final Runner runner;
-    private ManagedStrategyTransformer transformer;
 
-    protected ManagedStrategy(Class<?> testClass, ExecutionScenario scenario, Verifier verifier, Reporter reporter) {
-        super(scenario, verifier, reporter);
+    protected ManagedStrategy(Class<?> testClass, ExecutionScenario scenario, Verifier verifier, Reporter reporter,
+        int verificationThreads)
+    {
+        super(scenario, verifier, reporter, verificationThreads);
         nThreads = scenario.parallelExecution.size();
         runner = new ParallelThreadsRunner(scenario, this, testClass, null) {
             @Override
@@ -55,7 +59,7 @@ public abstract class ManagedStrategy extends Strategy {
 
     @Override
     public ClassVisitor createTransformer(ClassVisitor cv, ClassInfo classInfo) {
-        return transformer = new ManagedStrategyTransformer(cv, classInfo);
+        return new ManagedStrategyTransformer(cv, classInfo);
     }
 
     @Override
@@ -63,6 +67,11 @@ public abstract class ManagedStrategy extends Strategy {
         return true;
     }
 
+    @Override
+    public boolean restoreTransformation(byte[] transformedBytes) {
+        return ManagedStrategyTransformer.registerCachedClass(transformedBytes);
+    }
+
     @Override
     public final void run() throws Exception {
         try {
@@ -82,12 +91,21 @@ public abstract class ManagedStrategy extends Strategy {
     }
 
     /**
-     * Returns a {@link StackTraceElement} described the specified code location
+     * Loads the specified class via the class loader of this strategy, thus the class is transformed
+     * via {@link ManagedStrategyTransformer} and its code invokes the hooks of this strategy.
+     * It is useful for testing and benchmarking the transformation.
+     */
+    public Class<?> loadTransformedClass(String className) throws ClassNotFoundException {
+        return runner.classLoader.loadClass(className);
+    }
+
+    /**
+     * Returns a {@link StackTraceElement} described the specified code location.
      *
      * @param codeLocation code location identifier which is inserted by transformer
      */
     protected final StackTraceElement getLocationDescription(int codeLocation) {
-        return transformer.getCodeLocations().get(codeLocation);
+        return ManagedStrategyTransformer.getCodeLocation(codeLocation);
     }
 
     /**
@@ -126,23 +144,23 @@ public abstract class ManagedStrategy extends Strategy {
     public void beforeSharedVariableWrite(int iThread, int codeLocation) {}
 
     /**
-     *
+     * This method is executed before a monitor acquisition, including the one on a {@code synchronized} method entry.
      * @param iThread the number of the executed thread according to the {@link ExecutionScenario scenario}.
      * @param codeLocation the byte-code location identifier of this operation.
-     * @param monitor
+     * @param monitor the monitor to be acquired.
      */
     public void beforeLockAcquire(int iThread, int codeLocation, Object monitor) {}
 
     /**
-     *
+     * This method is executed after a monitor release, including the one on a {@code synchronized} method exit.
      * @param iThread the number of the executed thread according to the {@link ExecutionScenario scenario}.
      * @param codeLocation the byte-code location identifier of this operation.
-     * @param monitor
+     * @param monitor the released monitor.
      */
     public void afterLockRelease(int iThread, int codeLocation, Object monitor) {}
 
     /**
-     *
+     * This method is executed before {@code LockSupport.park} invocation.
      * @param iThread the number of the executed thread according to the {@link ExecutionScenario scenario}.
      * @param codeLocation the byte-code location identifier of this operation.
      * @param withTimeout {@code true} if is invoked with timeout, {@code false} otherwise.
@@ -150,41 +168,65 @@ public abstract class ManagedStrategy extends Strategy {
     public void beforePark(int iThread, int codeLocation, boolean withTimeout) {}
 
     /**
-     *
+     * This method is executed after {@code LockSupport.unpark} invocation.
      * @param iThread the number of the executed thread according to the {@link ExecutionScenario scenario}.
      * @param codeLocation the byte-code location identifier of this operation.
-     * @param thread
+     * @param thread the unparked thread.
      */
     public void afterUnpark(int iThread, int codeLocation, Object thread) {}
 
     /**
-     *
+     * This method is executed before {@code Object.wait} invocation.
      * @param iThread the number of the executed thread according to the {@link ExecutionScenario scenario}.
      * @param codeLocation the byte-code location identifier of this operation.
-     * @param monitor
+     * @param monitor the monitor to wait on.
      * @param withTimeout {@code true} if is invoked with timeout, {@code false} otherwise.
      */
     public void beforeWait(int iThread, int codeLocation, Object monitor, boolean withTimeout) {}
 
     /**
-     *
+     * This method is executed after {@code Object.notify} or {@code Object.notifyAll} invocation.
      * @param iThread the number of the executed thread according to the {@link ExecutionScenario scenario}.
      * @param codeLocation the byte-code location identifier of this operation.
-     * @param monitor
-     * @param notifyAll
+     * @param monitor the notified monitor.
+     * @param notifyAll {@code true} if {@code notifyAll} is invoked, {@code false} otherwise.
      */
     public void afterNotify(int iThread, int codeLocation, Object monitor, boolean notifyAll) {}
 
     /**
-     *
+     * This method is executed after {@code Thread.interrupt} invocation.
      * @param iThread the number of the executed thread according to the {@link ExecutionScenario scenario}.
      * @param codeLocation the byte-code location identifier of this operation.
-     * @param iInterruptedThread
+     * @param iInterruptedThread the number of the interrupted thread, or {@code -1} if it is not a test one.
      */
     public void afterThreadInterrupt(int iThread, int codeLocation, int iInterruptedThread) {}
 
     // == UTILITY METHODS
 
+    /**
+     * Returns the names of the classes which have been transformed for this strategy.
+     */
+    public Set<String> getTransformedClasses() {
+        return ((TransformationClassLoader) runner.classLoader).getTransformedClasses();
+    }
+
+    /**
+     * Returns the number of shared variable accesses in the specified class which have been
+     * instrumented via {@link ManagedStrategyTransformer}, or {@code 0} if the class has not been transformed.
+     */
+    public static long getInstrumentedSharedVariableAccesses(String className) {
+        return ManagedStrategyTransformer.getInstrumentedAccesses(className);
+    }
+
+    /**
+     * Returns the number of shared variable accesses in the specified class which have not been
+     * instrumented via {@link ManagedStrategyTransformer} since they cannot race, e.g. reads of final fields,
+     * or {@code 0} if the class has not been transformed.
+     */
+    public static long getSkippedSharedVariableAccesses(String className) {
+        return ManagedStrategyTransformer.getSkippedAccesses(className);
+    }
+
     /**
      * This method is invoked by transformed via {@link ManagedStrategyTransformer} code,
      * it helps to determine the number of thread we are executing on.
@@ -10,9 +10,17 @@
 
 package com.devexperts.dxlab.lincheck.strategy;
 
+import com.devexperts.dxlab.lincheck.runner.ParallelThreadsRunner;
+
 /**
  * This utility class helps to hold the current strategy. In order to run several tests in parallel,
  * every iteration have to use its own class loader, thus this holder is not shared between them.
+ * <p>
+ * The code transformed via {@link ManagedStrategyTransformer} invokes the static hooks of this class,
+ * which pass the current thread number to the corresponding {@link ManagedStrategy} methods.
+ * Thus, every instrumented instruction is preceded by a single static call with a small byte-code,
+ * which the JIT can inline, and the thread number is read from the {@link ParallelThreadsRunner.TestThread}
+ * field, which is set once per invocation.
  */
 public class ManagedStrategyHolder {
     public static ManagedStrategy strategy;
@@ -28,4 +36,93 @@ public class ManagedStrategyHolder {
             throw new IllegalStateException("Cannot set strategy to ManagedStrategyHolder", e);
         }
     }
+
+    /**
+     * Invokes {@link ManagedStrategy#beforeSharedVariableRead(int, int)} for the current thread.
+     */
+    public static void beforeSharedVariableRead(int codeLocation) {
+        ManagedStrategy s = strategy;
+        s.beforeSharedVariableRead(currentThreadNumber(s), codeLocation);
+    }
+
+    /**
+     * Invokes {@link ManagedStrategy#beforeSharedVariableWrite(int, int)} for the current thread.
+     */
+    public static void beforeSharedVariableWrite(int codeLocation) {
+        ManagedStrategy s = strategy;
+        s.beforeSharedVariableWrite(currentThreadNumber(s), codeLocation);
+    }
+
+    /**
+     * Invokes {@link ManagedStrategy#beforeLockAcquire(int, int, Object)} for the current thread.
+     */
+    public static void beforeLockAcquire(Object monitor, int codeLocation) {
+        ManagedStrategy s = strategy;
+        s.beforeLockAcquire(currentThreadNumber(s), codeLocation, monitor);
+    }
+
+    /**
+     * Invokes {@link ManagedStrategy#afterLockRelease(int, int, Object)} for the current thread.
+     */
+    public static void afterLockRelease(Object monitor, int codeLocation) {
+        ManagedStrategy s = strategy;
+        s.afterLockRelease(currentThreadNumber(s), codeLocation, monitor);
+    }
+
+    /**
+     * Invokes {@link ManagedStrategy#beforePark(int, int, boolean)} for the current thread.
+     */
+    public static void beforePark(boolean withTimeout, int codeLocation) {
+        ManagedStrategy s = strategy;
+        s.beforePark(currentThreadNumber(s), codeLocation, withTimeout);
+    }
+
+    /**
+     * Invokes {@link ManagedStrategy#afterUnpark(int, int, Object)} for the current thread.
+     */
+    public static void afterUnpark(Object thread, int codeLocation) {
+        ManagedStrategy s = strategy;
+        s.afterUnpark(currentThreadNumber(s), codeLocation, thread);
+    }
+
+    /**
+     * Invokes {@link ManagedStrategy#beforeWait(int, int, Object, boolean)} for the current thread.
+     */
+    public static void beforeWait(Object monitor, boolean withTimeout, int codeLocation) {
+        ManagedStrategy s = strategy;
+        s.beforeWait(currentThreadNumber(s), codeLocation, monitor, withTimeout);
+    }
+
+    /**
+     * Invokes {@link ManagedStrategy#afterNotify(int, int, Object, boolean)} for the current thread.
+     */
+    public static void afterNotify(Object monitor, boolean notifyAll, int codeLocation) {
+        ManagedStrategy s = strategy;
+        s.afterNotify(currentThreadNumber(s), codeLocation, monitor, notifyAll);
+    }
+
+    /**
+     * Invokes {@link ManagedStrategy#afterThreadInterrupt(int, int, int)} for the current thread,
+     * the interrupted thread number is {@code -1} if it is not a test one.
+     * The invocations of {@code interrupt()} methods which do not belong to a thread are ignored.
+     */
+    public static void afterThreadInterrupt(Object thread, int codeLocation) {
+        if (!(thread instanceof Thread))
+            return;
+        ManagedStrategy s = strategy;
+        int iInterruptedThread = thread instanceof ParallelThreadsRunner.TestThread ?
+            ((ParallelThreadsRunner.TestThread) thread).iThread : -1;
+        s.afterThreadInterrupt(currentThreadNumber(s), codeLocation, iInterruptedThread);
+    }
+
+    // Note that the holder is loaded by another class loader than the strategy,
+    // thus only public members of the strategy are accessible from here.
+    private static int currentThreadNumber(ManagedStrategy strategy) {
+        Thread t = Thread.currentThread();
+        if (t instanceof ParallelThreadsRunner.TestThread) {
+            return ((ParallelThreadsRunner.TestThread) t).iThread;
+        } else {
+            return strategy.currentThreadNumber(); // not a test thread
+        }
+    }
 }
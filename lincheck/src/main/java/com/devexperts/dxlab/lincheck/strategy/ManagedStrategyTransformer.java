@@ -11,6 +11,8 @@
 package com.devexperts.dxlab.lincheck.strategy;
 
 import com.devexperts.jagent.ClassInfo;
+import org.objectweb.asm.Attribute;
+import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.Label;
 import org.objectweb.asm.MethodVisitor;
@@ -20,53 +22,286 @@ import org.objectweb.asm.commons.GeneratorAdapter;
 import org.objectweb.asm.commons.JSRInlinerAdapter;
 import org.objectweb.asm.commons.Method;
 import org.objectweb.asm.commons.TryCatchBlockSorter;
+import org.objectweb.asm.tree.MethodNode;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * This transformer inserts {@link ManagedStrategy}' methods invocations.
+ * The accesses which cannot race with other threads are not instrumented: reads and writes
+ * of the immutable fields (see {@link ImmutableFields}) and writes to the fields of the object
+ * under construction before it escapes the constructor (see {@link UnpublishedThisWrites}).
+ * In addition, monitor operations, {@code synchronized} methods, {@code LockSupport.park/unpark},
+ * {@code Object.wait/notify} and {@code Thread.interrupt} invocations are instrumented.
+ * <p>
+ * The JDK classes are not transformed, thus the operations of {@code java.util.concurrent.atomic}
+ * classes and {@code Unsafe} are instrumented at their call sites instead, see {@link #getAtomicAccessType}.
+ * The call sites are recognized by the owner class in the byte-code, thus the operations invoked
+ * via a user subclass of an atomic class (e.g. {@code MyCounter extends AtomicInteger}) are not instrumented.
  */
 class ManagedStrategyTransformer extends ClassVisitor {
     private static final int ASM_API = Opcodes.ASM5;
 
-    private static final Type[] NO_ARGS = new Type[]{};
-
     private static final Type OBJECT_TYPE = Type.getType(Object.class);
     private static final Type MANAGED_STRATEGY_HOLDER_TYPE = Type.getType(ManagedStrategyHolder.class);
-    private static final Type MANAGED_STRATEGY_TYPE = Type.getType(ManagedStrategy.class);
 
-    private static final Method CURRENT_THREAD_NUMBER_METHOD = new Method("currentThreadNumber", Type.INT_TYPE, NO_ARGS);
-    private static final Method BEFORE_SHARED_VARIABLE_READ_METHOD = new Method("beforeSharedVariableRead", Type.VOID_TYPE, new Type[]{Type.INT_TYPE, Type.INT_TYPE});
-    private static final Method BEFORE_SHARED_VARIABLE_WRITE_METHOD = new Method("beforeSharedVariableWrite", Type.VOID_TYPE, new Type[]{Type.INT_TYPE, Type.INT_TYPE});
-    private static final Method BEFORE_LOCK_ACQUIRE_METHOD = new Method("beforeLockAcquire", Type.VOID_TYPE, new Type[]{Type.INT_TYPE, Type.INT_TYPE, OBJECT_TYPE});
-    private static final Method AFTER_LOCK_RELEASE_METHOD = new Method("afterLockRelease", Type.VOID_TYPE, new Type[]{Type.INT_TYPE, Type.INT_TYPE, OBJECT_TYPE});
+    private static final String LOCK_SUPPORT_CLASS = "java/util/concurrent/locks/LockSupport";
+
+    // Static hooks in ManagedStrategyHolder, which determine the current thread number themselves
+    private static final Method BEFORE_SHARED_VARIABLE_READ_METHOD = new Method("beforeSharedVariableRead", Type.VOID_TYPE, new Type[]{Type.INT_TYPE});
+    private static final Method BEFORE_SHARED_VARIABLE_WRITE_METHOD = new Method("beforeSharedVariableWrite", Type.VOID_TYPE, new Type[]{Type.INT_TYPE});
+    private static final Method BEFORE_LOCK_ACQUIRE_METHOD = new Method("beforeLockAcquire", Type.VOID_TYPE, new Type[]{OBJECT_TYPE, Type.INT_TYPE});
+    private static final Method AFTER_LOCK_RELEASE_METHOD = new Method("afterLockRelease", Type.VOID_TYPE, new Type[]{OBJECT_TYPE, Type.INT_TYPE});
+    private static final Method BEFORE_PARK_METHOD = new Method("beforePark", Type.VOID_TYPE, new Type[]{Type.BOOLEAN_TYPE, Type.INT_TYPE});
+    private static final Method AFTER_UNPARK_METHOD = new Method("afterUnpark", Type.VOID_TYPE, new Type[]{OBJECT_TYPE, Type.INT_TYPE});
+    private static final Method BEFORE_WAIT_METHOD = new Method("beforeWait", Type.VOID_TYPE, new Type[]{OBJECT_TYPE, Type.BOOLEAN_TYPE, Type.INT_TYPE});
+    private static final Method AFTER_NOTIFY_METHOD = new Method("afterNotify", Type.VOID_TYPE, new Type[]{OBJECT_TYPE, Type.BOOLEAN_TYPE, Type.INT_TYPE});
+    private static final Method AFTER_THREAD_INTERRUPT_METHOD = new Method("afterThreadInterrupt", Type.VOID_TYPE, new Type[]{OBJECT_TYPE, Type.INT_TYPE});
+
+    // Code locations are shared between all transformers. The identifiers are unique in this JVM,
+    // the locations of a class are also stored in the class itself via InstrumentationAttribute,
+    // so that they are registered again when the class is loaded from the disk cache, see registerCachedClass
+    private static final Map<Integer, StackTraceElement> codeLocations = new ConcurrentHashMap<>();
+    private static final AtomicInteger nextCodeLocation = new AtomicInteger();
+
+    // The instrumentation of the transformed in this JVM classes by their names, which provides
+    // the numbers of instrumented and skipped shared variable accesses
+    private static final Map<String, InstrumentationAttribute> transformedClasses = new ConcurrentHashMap<>();
+
+    // Internal names of the classes which methods access shared variables, see getAtomicAccessType
+    private static final String ATOMIC_PACKAGE = "java/util/concurrent/atomic/";
+    private static final Set<String> UNSAFE_CLASSES = new HashSet<>(Arrays.asList(
+        "sun/misc/Unsafe", "jdk/internal/misc/Unsafe"
+    ));
 
     private String className;
     private String fileName;
-    private final List<StackTraceElement> codeLocations = new ArrayList<>();
+    private int classVersion;
+    private final InstrumentationAttribute instrumentation = new InstrumentationAttribute();
 
     public ManagedStrategyTransformer(ClassVisitor cv, ClassInfo ci) {
         super(ASM_API, cv);
         this.className = ci.getClassName();
         this.fileName = ci.getSourceFile();
+        instrumentation.fileName = fileName;
+    }
+
+    /**
+     * Returns a {@link StackTraceElement} described the specified code location.
+     */
+    public static StackTraceElement getCodeLocation(int codeLocation) {
+        return codeLocations.get(codeLocation);
+    }
+
+    /**
+     * Registers the code locations and the shared variable accesses of the class
+     * which has been transformed in another JVM and is loaded from the disk cache.
+     *
+     * @return {@code false} if the byte-code cannot be reused since it has no code locations
+     * or their identifiers are already used by other locations in this JVM.
+     */
+    static boolean registerCachedClass(byte[] transformedBytes) {
+        InstrumentationAttribute[] instrumentation = new InstrumentationAttribute[1];
+        ClassReader cr = new ClassReader(transformedBytes);
+        cr.accept(new ClassVisitor(ASM_API) {
+            @Override
+            public void visitAttribute(Attribute attr) {
+                if (attr instanceof InstrumentationAttribute)
+                    instrumentation[0] = (InstrumentationAttribute) attr;
+            }
+        }, new Attribute[] {new InstrumentationAttribute()},
+            ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+        InstrumentationAttribute attr = instrumentation[0];
+        if (attr == null)
+            return false;
+        for (Map.Entry<Integer, StackTraceElement> e : attr.codeLocations.entrySet()) {
+            int codeLocation = e.getKey();
+            // Do not reuse the identifier for the new locations
+            nextCodeLocation.accumulateAndGet(codeLocation + 1, Math::max);
+            StackTraceElement registered = codeLocations.putIfAbsent(codeLocation, e.getValue());
+            if (registered != null && !registered.equals(e.getValue()))
+                return false;
+        }
+        transformedClasses.put(cr.getClassName().replace('/', '.'), attr);
+        return true;
+    }
+
+    /**
+     * Returns the number of instrumented shared variable accesses in the specified class,
+     * or {@code 0} if the class has not been transformed in this JVM.
+     */
+    static int getInstrumentedAccesses(String className) {
+        InstrumentationAttribute instrumentation = transformedClasses.get(className);
+        return instrumentation == null ? 0 : instrumentation.instrumentedAccesses;
+    }
+
+    /**
+     * Returns the number of shared variable accesses in the specified class which have not been
+     * instrumented since they cannot race, or {@code 0} if the class has not been transformed in this JVM.
+     */
+    static int getSkippedAccesses(String className) {
+        InstrumentationAttribute instrumentation = transformedClasses.get(className);
+        return instrumentation == null ? 0 : instrumentation.skippedAccesses;
+    }
+
+    /**
+     * Returns {@link Opcodes#GETFIELD} if the specified method of an atomic class or {@code Unsafe}
+     * reads a shared variable, {@link Opcodes#PUTFIELD} if it writes one (including read-modify-write
+     * operations), or {@code -1} if it does not access shared variables or is not such a method.
+     * The owner is not resolved, thus the methods invoked via subclasses of the atomic classes are not recognized.
+     */
+    static int getAtomicAccessType(String owner, String name) {
+        if (owner.startsWith(ATOMIC_PACKAGE) && owner.startsWith("Atomic", ATOMIC_PACKAGE.length())) {
+            // AtomicXXX, AtomicXXXArray and AtomicXXXFieldUpdater
+            if (name.startsWith("set") || name.equals("lazySet") || name.startsWith("compareAnd") ||
+                name.startsWith("weakCompareAnd") || name.startsWith("getAnd") || name.endsWith("AndGet") ||
+                name.startsWith("attempt"))
+            {
+                return Opcodes.PUTFIELD;
+            }
+            if ((name.startsWith("get") && !name.equals("getClass")) || name.endsWith("Value") || name.equals("isMarked"))
+                return Opcodes.GETFIELD;
+        } else if (UNSAFE_CLASSES.contains(owner)) {
+            // compareAndSwapXXX, compareAndSetXXX, compareAndExchangeXXX, weakCompareAndSetXXX,
+            // getAndAddXXX, getAndSetXXX and getAndBitwiseXXX are read-modify-write operations
+            if (name.startsWith("put") || name.startsWith("compareAnd") || name.startsWith("weakCompareAnd") ||
+                name.startsWith("getAnd"))
+            {
+                return Opcodes.PUTFIELD;
+            }
+            if (name.startsWith("get") && !name.equals("getUnsafe") && !name.equals("getLoadAverage"))
+                return Opcodes.GETFIELD;
+        }
+        return -1;
     }
 
-    public List<StackTraceElement> getCodeLocations() {
-        return codeLocations;
+    @Override
+    public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+        this.classVersion = version;
+        super.visit(version, access, name, signature, superName, interfaces);
     }
 
     @Override
     public MethodVisitor visitMethod(int access, String mname, String desc, String signature, String[] exceptions) {
+        // The holder is loaded by the same class loader, but its hooks should not be instrumented
+        if (className.equals(MANAGED_STRATEGY_HOLDER_TYPE.getInternalName()))
+            return super.visitMethod(access, mname, desc, signature, exceptions);
+        // Synchronized methods acquire and release their monitors explicitly, see SynchronizedMethodTransformer
+        boolean synchronizedMethod = (access & Opcodes.ACC_SYNCHRONIZED) != 0 && (access & Opcodes.ACC_NATIVE) == 0;
+        if (synchronizedMethod)
+            access &= ~Opcodes.ACC_SYNCHRONIZED;
         MethodVisitor mv = super.visitMethod(access, mname, desc, signature, exceptions);
         mv = new JSRInlinerAdapter(mv, access, mname, desc, signature, exceptions);
-        mv = new SharedVariableAccessMethodTransformer(mname, new GeneratorAdapter(mv, access, mname, desc));
-        // TODO add other transformers
+        mv = new SynchronizationPrimitivesMethodTransformer(mname, new GeneratorAdapter(mv, access, mname, desc));
+        SharedVariableAccessMethodTransformer smv = new SharedVariableAccessMethodTransformer(mname, new GeneratorAdapter(mv, access, mname, desc));
+        mv = mname.equals("<init>") ? new ConstructorAnalyzer(access, mname, desc, signature, exceptions, smv) : smv;
         mv = new TryCatchBlockSorter(mv, access, mname, desc, signature, exceptions);
+        if (synchronizedMethod)
+            mv = new SynchronizedMethodTransformer(mv, (access & Opcodes.ACC_STATIC) != 0);
         return mv;
     }
 
+    @Override
+    public void visitEnd() {
+        // The attribute is written when the whole class has been transformed
+        super.visitAttribute(instrumentation);
+        super.visitEnd();
+        transformedClasses.put(className.replace('/', '.'), instrumentation);
+    }
+
+    /**
+     * Replaces the implicit monitor acquisition and release of a {@code synchronized} method
+     * with {@code MONITORENTER} and {@code MONITOREXIT} instructions, which are instrumented
+     * by {@link SynchronizationPrimitivesMethodTransformer} then. The monitor is released
+     * before every return and on any exception, as the JVM does.
+     */
+    private class SynchronizedMethodTransformer extends MethodVisitor {
+        private final boolean isStatic;
+        private final Label start = new Label();
+        private final Label end = new Label();
+        private final Label handler = new Label();
+
+        SynchronizedMethodTransformer(MethodVisitor mv, boolean isStatic) {
+            super(ASM_API, mv);
+            this.isStatic = isStatic;
+        }
+
+        @Override
+        public void visitCode() {
+            super.visitCode();
+            loadMonitor();
+            super.visitInsn(Opcodes.MONITORENTER);
+            super.visitLabel(start);
+        }
+
+        @Override
+        public void visitInsn(int opcode) {
+            if (opcode >= Opcodes.IRETURN && opcode <= Opcodes.RETURN) {
+                loadMonitor();
+                super.visitInsn(Opcodes.MONITOREXIT);
+            }
+            super.visitInsn(opcode);
+        }
+
+        @Override
+        public void visitMaxs(int maxStack, int maxLocals) {
+            // The try-catch blocks are sorted by TryCatchBlockSorter,
+            // thus this handler covering the whole method is the last one
+            super.visitLabel(end);
+            super.visitTryCatchBlock(start, end, handler, null);
+            super.visitLabel(handler);
+            loadMonitor();
+            super.visitInsn(Opcodes.MONITOREXIT);
+            super.visitInsn(Opcodes.ATHROW);
+            super.visitMaxs(maxStack, maxLocals);
+        }
+
+        private void loadMonitor() {
+            if (!isStatic) {
+                super.visitVarInsn(Opcodes.ALOAD, 0);
+            } else if ((classVersion & 0xFFFF) >= Opcodes.V1_5) {
+                super.visitLdcInsn(Type.getObjectType(className));
+            } else {
+                // Class constants are not supported before Java 5 class files
+                super.visitLdcInsn(Type.getObjectType(className).getClassName());
+                super.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/Class", "forName",
+                    "(Ljava/lang/String;)Ljava/lang/Class;", false);
+            }
+        }
+    }
+
+    /**
+     * Buffers a constructor in order to find the writes which should not be instrumented
+     * via {@link UnpublishedThisWrites}, and passes it to the transformer after that.
+     */
+    private class ConstructorAnalyzer extends MethodNode {
+        private final SharedVariableAccessMethodTransformer next;
+
+        ConstructorAnalyzer(int access, String name, String desc, String signature, String[] exceptions,
+            SharedVariableAccessMethodTransformer next)
+        {
+            super(ASM_API, access, name, desc, signature, exceptions);
+            this.next = next;
+        }
+
+        @Override
+        public void visitEnd() {
+            next.unpublishedThisWrites = UnpublishedThisWrites.find(className, this);
+            accept(next);
+        }
+    }
+
     class SharedVariableAccessMethodTransformer extends ManagedStrategyMethodVisitor {
+        // `true` for PUTFIELD instructions in order if they should not be
+        // instrumented, see UnpublishedThisWrites; null if there are no such ones
+        private boolean[] unpublishedThisWrites;
+        private int nPutFields;
+
         public SharedVariableAccessMethodTransformer(String methodName, GeneratorAdapter mv) {
             super(methodName, mv);
         }
@@ -76,11 +311,19 @@ class ManagedStrategyTransformer extends ClassVisitor {
             switch (opcode) {
             case Opcodes.GETSTATIC:
             case Opcodes.GETFIELD:
-                invokeBeforeSharedVariableRead();
+                if (ImmutableFields.isImmutable(owner, name))
+                    instrumentation.skippedAccesses++;
+                else
+                    invokeBeforeSharedVariableRead();
                 break;
             case Opcodes.PUTSTATIC:
             case Opcodes.PUTFIELD:
-                invokeBeforeSharedVariableWrite();
+                boolean unpublished = opcode == Opcodes.PUTFIELD && unpublishedThisWrites != null &&
+                    unpublishedThisWrites[nPutFields++];
+                if (unpublished || ImmutableFields.isImmutable(owner, name))
+                    instrumentation.skippedAccesses++;
+                else
+                    invokeBeforeSharedVariableWrite();
                 break;
             }
             super.visitFieldInsn(opcode, owner, name, desc);
@@ -106,6 +349,73 @@ class ManagedStrategyTransformer extends ClassVisitor {
             }
             super.visitInsn(opcode);
         }
+
+        @Override
+        public void visitMethodInsn(int opcode, String owner, String name, String desc, boolean itf) {
+            switch (getAtomicAccessType(owner, name)) {
+            case Opcodes.GETFIELD:
+                invokeBeforeSharedVariableRead();
+                break;
+            case Opcodes.PUTFIELD:
+                invokeBeforeSharedVariableWrite();
+                break;
+            }
+            super.visitMethodInsn(opcode, owner, name, desc, itf);
+        }
+    }
+
+    class SynchronizationPrimitivesMethodTransformer extends ManagedStrategyMethodVisitor {
+        public SynchronizationPrimitivesMethodTransformer(String methodName, GeneratorAdapter mv) {
+            super(methodName, mv);
+        }
+
+        @Override
+        public void visitInsn(int opcode) {
+            switch (opcode) {
+            case Opcodes.MONITORENTER:
+                invokeBeforeLockAcquire();
+                super.visitInsn(opcode);
+                break;
+            case Opcodes.MONITOREXIT:
+                mv.dup();
+                super.visitInsn(opcode);
+                invokeAfterLockRelease();
+                break;
+            default:
+                super.visitInsn(opcode);
+            }
+        }
+
+        @Override
+        public void visitMethodInsn(int opcode, String owner, String name, String desc, boolean itf) {
+            if (owner.equals(LOCK_SUPPORT_CLASS) && name.startsWith("park")) {
+                invokeBeforePark(!name.equals("park"));
+                super.visitMethodInsn(opcode, owner, name, desc, itf);
+            } else if (owner.equals(LOCK_SUPPORT_CLASS) && name.equals("unpark")) {
+                mv.dup();
+                super.visitMethodInsn(opcode, owner, name, desc, itf);
+                invokeAfterUnpark();
+            } else if (opcode == Opcodes.INVOKEVIRTUAL && name.equals("wait") && isWaitDescriptor(desc)) {
+                invokeBeforeWait(desc);
+                super.visitMethodInsn(opcode, owner, name, desc, itf);
+            } else if (opcode == Opcodes.INVOKEVIRTUAL && (name.equals("notify") || name.equals("notifyAll")) && desc.equals("()V")) {
+                mv.dup();
+                super.visitMethodInsn(opcode, owner, name, desc, itf);
+                invokeAfterNotify(name.equals("notifyAll"));
+            } else if (opcode == Opcodes.INVOKEVIRTUAL && name.equals("interrupt") && desc.equals("()V")) {
+                // The owner could be a subclass of Thread, the other objects are filtered out by the hook
+                mv.dup();
+                super.visitMethodInsn(opcode, owner, name, desc, itf);
+                invokeAfterThreadInterrupt();
+            } else {
+                super.visitMethodInsn(opcode, owner, name, desc, itf);
+            }
+        }
+
+        // Object.wait methods are final, thus they are determined by the descriptor
+        private boolean isWaitDescriptor(String desc) {
+            return desc.equals("()V") || desc.equals("(J)V") || desc.equals("(JI)V");
+        }
     }
 
     class ManagedStrategyMethodVisitor extends MethodVisitor {
@@ -129,45 +439,73 @@ class ManagedStrategyTransformer extends ClassVisitor {
         }
 
         private void invokeOnSharedVariableAccess(Method method) {
-            loadStrategy();
-            loadCurrentThreadNumber();
+            instrumentation.instrumentedAccesses++;
             loadNewCodeLocation();
-            mv.invokeVirtual(MANAGED_STRATEGY_TYPE, method);
+            mv.invokeStatic(MANAGED_STRATEGY_HOLDER_TYPE, method);
         }
 
-        // STACK: monitor
+        // STACK: monitor -> monitor
         void invokeBeforeLockAcquire() {
-            invokeOnLockAcquireOrRelease(BEFORE_LOCK_ACQUIRE_METHOD);
+            mv.dup();
+            loadNewCodeLocation();
+            mv.invokeStatic(MANAGED_STRATEGY_HOLDER_TYPE, BEFORE_LOCK_ACQUIRE_METHOD);
         }
 
-        // STACK: monitor
+        // STACK: monitor -> <empty>
         void invokeAfterLockRelease() {
-            invokeOnLockAcquireOrRelease(AFTER_LOCK_RELEASE_METHOD);
+            loadNewCodeLocation();
+            mv.invokeStatic(MANAGED_STRATEGY_HOLDER_TYPE, AFTER_LOCK_RELEASE_METHOD);
+        }
+
+        void invokeBeforePark(boolean withTimeout) {
+            mv.push(withTimeout);
+            loadNewCodeLocation();
+            mv.invokeStatic(MANAGED_STRATEGY_HOLDER_TYPE, BEFORE_PARK_METHOD);
         }
 
-        // STACK: monitor
-        private void invokeOnLockAcquireOrRelease(Method method) {
-            int monitorLocal = mv.newLocal(OBJECT_TYPE);
+        // STACK: thread -> <empty>
+        void invokeAfterUnpark() {
+            loadNewCodeLocation();
+            mv.invokeStatic(MANAGED_STRATEGY_HOLDER_TYPE, AFTER_UNPARK_METHOD);
+        }
+
+        // STACK: monitor, [timeout, [nanos]] -> monitor, [timeout, [nanos]]
+        void invokeBeforeWait(String desc) {
+            Type[] argTypes = Type.getArgumentTypes(desc);
+            int[] locals = new int[argTypes.length];
+            for (int i = argTypes.length - 1; i >= 0; i--) {
+                locals[i] = mv.newLocal(argTypes[i]);
+                mv.storeLocal(locals[i]);
+            }
             mv.dup();
-            mv.storeLocal(monitorLocal);
-            loadCurrentThreadNumber();
+            mv.push(argTypes.length > 0);
             loadNewCodeLocation();
-            mv.loadLocal(monitorLocal);
-            mv.invokeVirtual(MANAGED_STRATEGY_TYPE, method);
+            mv.invokeStatic(MANAGED_STRATEGY_HOLDER_TYPE, BEFORE_WAIT_METHOD);
+            for (int local : locals)
+                mv.loadLocal(local);
         }
 
-        void loadStrategy() {
-            mv.getStatic(MANAGED_STRATEGY_HOLDER_TYPE, "strategy", MANAGED_STRATEGY_TYPE);
+        // STACK: monitor -> <empty>
+        void invokeAfterNotify(boolean notifyAll) {
+            mv.push(notifyAll);
+            loadNewCodeLocation();
+            mv.invokeStatic(MANAGED_STRATEGY_HOLDER_TYPE, AFTER_NOTIFY_METHOD);
         }
 
-        void loadCurrentThreadNumber() {
-            loadStrategy();
-            mv.invokeVirtual(MANAGED_STRATEGY_TYPE, CURRENT_THREAD_NUMBER_METHOD);
+        // STACK: thread -> <empty>
+        void invokeAfterThreadInterrupt() {
+            loadNewCodeLocation();
+            mv.invokeStatic(MANAGED_STRATEGY_HOLDER_TYPE, AFTER_THREAD_INTERRUPT_METHOD);
         }
 
         void loadNewCodeLocation() {
-            int codeLocation = codeLocations.size();
-            codeLocations.add(new StackTraceElement(className, methodName, fileName, lineNumber));
+            StackTraceElement location = new StackTraceElement(className, methodName, fileName, lineNumber);
+            // The identifier could be taken by a class from the disk cache concurrently
+            int codeLocation;
+            do {
+                codeLocation = nextCodeLocation.getAndIncrement();
+            } while (codeLocations.putIfAbsent(codeLocation, location) != null);
+            instrumentation.codeLocations.put(codeLocation, location);
             mv.push(codeLocation);
         }
 
@@ -11,9 +11,12 @@
 package com.devexperts.dxlab.lincheck.strategy;
 
 import com.devexperts.dxlab.lincheck.CTestConfiguration;
+import com.devexperts.dxlab.lincheck.LoggingLevel;
 import com.devexperts.dxlab.lincheck.Reporter;
 import com.devexperts.dxlab.lincheck.execution.ExecutionResult;
 import com.devexperts.dxlab.lincheck.execution.ExecutionScenario;
+import com.devexperts.dxlab.lincheck.strategy.cooperative.CooperativeCTestConfiguration;
+import com.devexperts.dxlab.lincheck.strategy.cooperative.CooperativeStrategy;
 import com.devexperts.dxlab.lincheck.strategy.randomswitch.RandomSwitchCTestConfiguration;
 import com.devexperts.dxlab.lincheck.strategy.randomswitch.RandomSwitchStrategy;
 import com.devexperts.dxlab.lincheck.strategy.stress.StressCTestConfiguration;
@@ -21,6 +24,7 @@ import com.devexperts.dxlab.lincheck.strategy.stress.StressStrategy;
 import com.devexperts.dxlab.lincheck.verifier.Verifier;
 import com.devexperts.jagent.ClassInfo;
 import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.util.CheckClassAdapter;
 
 /**
  * Implementation of this class describes how to run the generated execution.
@@ -30,23 +34,79 @@ import org.objectweb.asm.ClassVisitor;
  * without any code change.
  */
 public abstract class Strategy {
+    /**
+     * Set this system property to {@code true} in order to verify the generated
+     * and transformed byte-code, it is also verified if {@link LoggingLevel#DEBUG} is used.
+     */
+    public static final String VERIFY_BYTECODE_PROPERTY = "lincheck.verifyBytecode";
+    private static final boolean VERIFY_BYTECODE = Boolean.getBoolean(VERIFY_BYTECODE_PROPERTY);
+
     protected final ExecutionScenario scenario;
     protected final Reporter reporter;
     private final Verifier verifier;
+    private final AsyncVerification asyncVerification; // null if results are verified synchronously
 
     protected Strategy(ExecutionScenario scenario, Verifier verifier, Reporter reporter) {
+        this(scenario, verifier, reporter, 0);
+    }
+
+    /**
+     * @param verificationThreads the number of threads to verify results asynchronously,
+     *                            {@code 0} means the synchronous verification.
+     */
+    protected Strategy(ExecutionScenario scenario, Verifier verifier, Reporter reporter, int verificationThreads) {
         this.scenario = scenario;
         this.verifier = verifier;
         this.reporter = reporter;
+        this.asyncVerification = verificationThreads > 0 ? new AsyncVerification(verifier, verificationThreads) : null;
     }
 
-    protected void verifyResults(ExecutionResult results) {
-        if (!verifier.verifyResults(results)) {
-            reporter.logIncorrectResults(scenario, results);
-            throw new AssertionError("Invalid interleaving found");
+    /**
+     * Verifies the results or passes them to the asynchronous verification.
+     * In the last case, the incorrect results are reported by the next invocation
+     * of this method or by {@link #completeVerification()}.
+     */
+    protected void verifyResults(ExecutionResult results) throws InterruptedException {
+        if (asyncVerification != null) {
+            checkAsyncVerification();
+            asyncVerification.submit(results);
+        } else if (!verifier.verifyResults(results)) {
+            reportIncorrectResults(results);
         }
     }
 
+    /**
+     * Waits until all the results passed to {@link #verifyResults(ExecutionResult)} are verified.
+     *
+     * @throws AssertionError if incorrect results are found.
+     */
+    public void completeVerification() throws InterruptedException {
+        if (asyncVerification == null)
+            return;
+        asyncVerification.complete();
+        checkAsyncVerification();
+    }
+
+    /**
+     * Stops the asynchronous verification without waiting for the submitted results,
+     * but waits for the results which are being verified at the moment.
+     */
+    public void cancelVerification() {
+        if (asyncVerification != null && !asyncVerification.cancel() && reporter != null)
+            reporter.logVerificationNotStopped(AsyncVerification.CANCEL_TIMEOUT_MILLIS);
+    }
+
+    private void checkAsyncVerification() {
+        ExecutionResult incorrectResults = asyncVerification.getIncorrectResults();
+        if (incorrectResults != null)
+            reportIncorrectResults(incorrectResults);
+    }
+
+    private void reportIncorrectResults(ExecutionResult results) {
+        reporter.logIncorrectResults(scenario, results);
+        throw new AssertionError("Invalid interleaving found");
+    }
+
     public ClassVisitor createTransformer(ClassVisitor cv, ClassInfo classInfo) {
         throw new UnsupportedOperationException(getClass() + " runner does not transform classes");
     }
@@ -55,6 +115,25 @@ public abstract class Strategy {
         return false;
     }
 
+    /**
+     * This method is invoked when the byte-code transformed via {@link #createTransformer} is loaded
+     * from the disk cache, it restores the transformation state which is not stored in the byte-code.
+     *
+     * @return {@code false} if the cached byte-code cannot be reused, the class is transformed anew then.
+     */
+    public boolean restoreTransformation(byte[] transformedBytes) {
+        return true;
+    }
+
+    /**
+     * Returns {@code true} if the generated and transformed byte-code should be checked
+     * via {@link CheckClassAdapter}. It is useful for debugging only and is disabled by default,
+     * see {@link #VERIFY_BYTECODE_PROPERTY}.
+     */
+    public boolean verifyBytecode() {
+        return VERIFY_BYTECODE || (reporter != null && reporter.getLogLevel() == LoggingLevel.DEBUG);
+    }
+
     /**
      * Creates {@link Strategy} based on {@code testCfg} type.
      */
@@ -67,6 +146,9 @@ public abstract class Strategy {
         } else if (testCfg instanceof RandomSwitchCTestConfiguration) {
             return new RandomSwitchStrategy(testClass, scenario, verifier,
                 (RandomSwitchCTestConfiguration) testCfg, reporter);
+        } else if (testCfg instanceof CooperativeCTestConfiguration) {
+            return new CooperativeStrategy(testClass, scenario, verifier,
+                (CooperativeCTestConfiguration) testCfg, reporter);
         }
         throw new IllegalArgumentException("Unknown strategy configuration type: " + testCfg.getClass());
     }
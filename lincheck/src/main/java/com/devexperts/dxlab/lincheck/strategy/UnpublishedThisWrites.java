@@ -0,0 +1,183 @@
+/*
+ * Lincheck - Linearizability checker
+ *
+ * Copyright (C) 2015-2022 Devexperts, LLC
+ * Copyright (C) 2023 Devexperts Ireland Limited
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed with this file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.devexperts.dxlab.lincheck.strategy;
+
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.InsnList;
+import org.objectweb.asm.tree.InsnNode;
+import org.objectweb.asm.tree.MethodInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.VarInsnNode;
+import org.objectweb.asm.tree.analysis.Analyzer;
+import org.objectweb.asm.tree.analysis.AnalyzerException;
+import org.objectweb.asm.tree.analysis.SourceInterpreter;
+import org.objectweb.asm.tree.analysis.SourceValue;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Finds the writes to the fields of the object under construction which are executed
+ * before this object escapes the constructor, so that other threads cannot observe them.
+ * The object escapes when it is used anyhow except for reading or writing its fields and
+ * invoking the {@link Object} constructor, e.g. is stored somewhere or passed to a method
+ * (including a super class constructor). The analysis is conservative: if a write can be
+ * executed after the escape, or its target can be another object, it is not reported.
+ */
+final class UnpublishedThisWrites {
+    // Marks the values which can be the object under construction
+    private static final AbstractInsnNode THIS = new InsnNode(Opcodes.NOP);
+
+    private UnpublishedThisWrites() {}
+
+    /**
+     * Returns {@code true} for every {@code PUTFIELD} instruction of the specified constructor in order
+     * if it writes to the object under construction before it escapes, or {@code null} if the analysis fails.
+     */
+    static boolean[] find(String owner, MethodNode constructor) {
+        InsnList insns = constructor.instructions;
+        // Every `ALOAD 0` should load the object under construction
+        for (AbstractInsnNode insn = insns.getFirst(); insn != null; insn = insn.getNext()) {
+            if (insn.getOpcode() == Opcodes.ASTORE && ((VarInsnNode) insn).var == 0)
+                return null;
+        }
+        EscapeInterpreter interpreter = new EscapeInterpreter();
+        List<List<Integer>> successors = new ArrayList<>(insns.size());
+        for (int i = 0; i < insns.size(); i++)
+            successors.add(new ArrayList<>(2));
+        // Note that the analysis API is not generified in this ASM version
+        Analyzer analyzer = new Analyzer(interpreter) {
+            @Override
+            protected void newControlFlowEdge(int insn, int successor) {
+                successors.get(insn).add(successor);
+            }
+
+            @Override
+            protected boolean newControlFlowExceptionEdge(int insn, int successor) {
+                successors.get(insn).add(successor);
+                return true;
+            }
+        };
+        try {
+            analyzer.analyze(owner, constructor);
+        } catch (AnalyzerException e) {
+            return null;
+        }
+        // Find the instructions which can be executed after the escape
+        BitSet afterEscape = new BitSet(insns.size());
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (AbstractInsnNode escape : interpreter.escapes)
+            queue.add(insns.indexOf(escape));
+        while (!queue.isEmpty()) {
+            int i = queue.poll();
+            if (afterEscape.get(i))
+                continue;
+            afterEscape.set(i);
+            queue.addAll(successors.get(i));
+        }
+        List<Boolean> result = new ArrayList<>();
+        for (AbstractInsnNode insn = insns.getFirst(); insn != null; insn = insn.getNext()) {
+            if (insn.getOpcode() == Opcodes.PUTFIELD)
+                result.add(interpreter.thisWrites.contains(insn) && !afterEscape.get(insns.indexOf(insn)));
+        }
+        boolean[] res = new boolean[result.size()];
+        for (int i = 0; i < res.length; i++)
+            res[i] = result.get(i);
+        return res;
+    }
+
+    /**
+     * Tracks the values which can be the object under construction (their sources contain {@link #THIS})
+     * and collects the instructions where it escapes and the writes to its fields.
+     */
+    private static class EscapeInterpreter extends SourceInterpreter {
+        final Set<AbstractInsnNode> escapes = new HashSet<>();
+        final Set<AbstractInsnNode> thisWrites = new HashSet<>();
+
+        EscapeInterpreter() {
+            super(Opcodes.ASM5);
+        }
+
+        @Override
+        public SourceValue copyOperation(AbstractInsnNode insn, SourceValue value) {
+            if (insn.getOpcode() == Opcodes.ALOAD && ((VarInsnNode) insn).var == 0)
+                return new SourceValue(1, THIS);
+            if (mayBeThis(value))
+                return value; // DUP, SWAP, ALOAD or ASTORE keep the object
+            return super.copyOperation(insn, value);
+        }
+
+        @Override
+        public SourceValue unaryOperation(AbstractInsnNode insn, SourceValue value) {
+            if (insn.getOpcode() != Opcodes.GETFIELD)
+                checkEscape(insn, value);
+            return super.unaryOperation(insn, value);
+        }
+
+        @Override
+        public SourceValue binaryOperation(AbstractInsnNode insn, SourceValue value1, SourceValue value2) {
+            if (insn.getOpcode() == Opcodes.PUTFIELD) {
+                if (isThis(value1))
+                    thisWrites.add(insn);
+                checkEscape(insn, value2);
+            } else {
+                checkEscape(insn, value1);
+                checkEscape(insn, value2);
+            }
+            return super.binaryOperation(insn, value1, value2);
+        }
+
+        @Override
+        public SourceValue ternaryOperation(AbstractInsnNode insn, SourceValue value1, SourceValue value2, SourceValue value3) {
+            checkEscape(insn, value1);
+            checkEscape(insn, value2);
+            checkEscape(insn, value3);
+            return super.ternaryOperation(insn, value1, value2, value3);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public SourceValue naryOperation(AbstractInsnNode insn, List values) {
+            if (!isObjectConstructorCall(insn, values)) {
+                for (SourceValue value : (List<SourceValue>) values)
+                    checkEscape(insn, value);
+            }
+            return super.naryOperation(insn, values);
+        }
+
+        private void checkEscape(AbstractInsnNode insn, SourceValue value) {
+            if (mayBeThis(value))
+                escapes.add(insn);
+        }
+
+        private static boolean isObjectConstructorCall(AbstractInsnNode insn, List<?> values) {
+            if (insn.getOpcode() != Opcodes.INVOKESPECIAL)
+                return false;
+            MethodInsnNode m = (MethodInsnNode) insn;
+            return m.name.equals("<init>") && m.owner.equals("java/lang/Object") && isThis((SourceValue) values.get(0));
+        }
+
+        private static boolean mayBeThis(SourceValue value) {
+            return value.insns.contains(THIS);
+        }
+
+        private static boolean isThis(SourceValue value) {
+            return value.insns.equals(Collections.singleton(THIS));
+        }
+    }
+}
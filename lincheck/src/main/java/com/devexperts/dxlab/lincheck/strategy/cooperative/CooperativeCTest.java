@@ -0,0 +1,140 @@
+/*
+ * Lincheck - Linearizability checker
+ *
+ * Copyright (C) 2015-2022 Devexperts, LLC
+ * Copyright (C) 2023 Devexperts Ireland Limited
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed with this file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.devexperts.dxlab.lincheck.strategy.cooperative;
+
+import com.devexperts.dxlab.lincheck.CTestConfiguration;
+import com.devexperts.dxlab.lincheck.annotations.Operation;
+import com.devexperts.dxlab.lincheck.execution.ExecutionGenerator;
+import com.devexperts.dxlab.lincheck.execution.ExecutionScenario;
+import com.devexperts.dxlab.lincheck.execution.RandomExecutionGenerator;
+import com.devexperts.dxlab.lincheck.verifier.Verifier;
+import com.devexperts.dxlab.lincheck.verifier.linearizability.LinearizabilityVerifier;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Repeatable;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * This annotation configures concurrent test using {@link CooperativeStrategy cooperative} strategy.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+@Repeatable(CooperativeCTest.CooperativeCTests.class)
+@Inherited
+public @interface CooperativeCTest {
+    /**
+     * Number of different test scenarios to be executed
+     */
+    int iterations() default CTestConfiguration.DEFAULT_ITERATIONS;
+
+    /**
+     * Run each test scenario {@code invocations} times.
+     */
+    int invocationsPerIteration() default CooperativeCTestConfiguration.DEFAULT_INVOCATIONS;
+
+    /**
+     * Use the specified seed for choosing the threads to switch to,
+     * the same seed leads to the same interleavings of the same scenarios.
+     */
+    long seed() default CooperativeCTestConfiguration.DEFAULT_SEED;
+
+    /**
+     * Consider the running thread blocked in a non-transformed code if it does not pass the control
+     * for the specified time, the rest of the invocation is executed without the control then.
+     */
+    long blockingTimeoutMillis() default CooperativeCTestConfiguration.DEFAULT_BLOCKING_TIMEOUT_MILLIS;
+
+    /**
+     * Use the specified number of threads for the parallel part of an execution.
+     * <p>
+     * Note, that the the actual number of threads can be less due to some restrictions
+     * like {@link Operation#runOnce()}.
+     *
+     * @see ExecutionScenario#parallelExecution
+     */
+    int threads() default CTestConfiguration.DEFAULT_THREADS;
+
+    /**
+     * Generate the specified number of operations for each thread of the parallel part of an execution.
+     * <p>
+     * Note, that the the actual number of operations can be less due to some restrictions
+     * like {@link Operation#runOnce()}.
+     *
+     * @see ExecutionScenario#parallelExecution
+     */
+    int actorsPerThread() default CTestConfiguration.DEFAULT_ACTORS_PER_THREAD;
+
+    /**
+     * Generate the specified number of operation for the initial sequential part of an execution.
+     * <p>
+     * Note, that the the actual number of operations can be less due to some restrictions
+     * like {@link Operation#runOnce()}.
+     *
+     * @see ExecutionScenario#initExecution
+     */
+    int actorsBefore() default CTestConfiguration.DEFAULT_ACTORS_BEFORE;
+
+    /**
+     * Generate the specified number of operation for the last sequential part of an execution.
+     * <p>
+     * Note, that the the actual number of operations can be less due to some restrictions
+     * like {@link Operation#runOnce()}.
+     *
+     * @see ExecutionScenario#postExecution
+     */
+    int actorsAfter() default CTestConfiguration.DEFAULT_ACTORS_AFTER;
+
+    /**
+     * Use the specified execution generator
+     */
+    Class<? extends ExecutionGenerator> generator() default RandomExecutionGenerator.class;
+
+    /**
+     * Use the specified verifier
+     */
+    Class<? extends Verifier> verifier() default LinearizabilityVerifier.class;
+
+    /**
+     * Verify results in the specified number of threads asynchronously with the execution,
+     * {@code 0} means that results are verified synchronously.
+     * <p>
+     * Note, that the verifier should be thread-safe in this case.
+     */
+    int verificationThreads() default CTestConfiguration.DEFAULT_VERIFICATION_THREADS;
+
+    /**
+     * Run the specified number of iterations in parallel, each with its own strategy and runner.
+     * The classes are loaded by a separate class loader per iteration only if they are transformed,
+     * otherwise the iterations share the static state of the test class.
+     * Scenarios are generated sequentially, so the iteration numbers do not depend on this option.
+     */
+    int parallelIterations() default CTestConfiguration.DEFAULT_PARALLEL_ITERATIONS;
+
+    /**
+     * Limit the total number of threads used by parallel iterations,
+     * {@code 0} means the number of available processors.
+     */
+    int maxThreads() default CTestConfiguration.DEFAULT_MAX_THREADS;
+
+    /**
+     * Holder annotation for {@link CooperativeCTest}.
+     * Not a public API.
+     */
+    @Retention(RetentionPolicy.RUNTIME)
+    @Target(ElementType.TYPE)
+    @Inherited
+    @interface CooperativeCTests {
+        CooperativeCTest[] value();
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Lincheck - Linearizability checker
+ *
+ * Copyright (C) 2015-2022 Devexperts, LLC
+ * Copyright (C) 2023 Devexperts Ireland Limited
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed with this file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.devexperts.dxlab.lincheck.strategy.cooperative;
+
+import com.devexperts.dxlab.lincheck.CTestConfiguration;
+import com.devexperts.dxlab.lincheck.execution.ExecutionGenerator;
+import com.devexperts.dxlab.lincheck.verifier.Verifier;
+
+/**
+ * Configuration for {@link CooperativeStrategy cooperative} strategy.
+ */
+public class CooperativeCTestConfiguration extends CTestConfiguration {
+    public static final int DEFAULT_INVOCATIONS = 1_000;
+    public static final long DEFAULT_SEED = 0;
+    public static final long DEFAULT_BLOCKING_TIMEOUT_MILLIS = 100;
+
+    public final int invocationsPerIteration;
+    public final long seed;
+    public final long blockingTimeoutMillis;
+
+    public CooperativeCTestConfiguration(int iterations, int threads, int actorsPerThread, int actorsBefore,
+        int actorsAfter, Class<? extends ExecutionGenerator> generatorClass, Class<? extends Verifier> verifierClass,
+        int verificationThreads, int parallelIterations, int maxThreads, int invocationsPerIteration, long seed,
+        long blockingTimeoutMillis)
+    {
+        super(iterations, threads, actorsPerThread, actorsBefore, actorsAfter, generatorClass, verifierClass,
+            verificationThreads, parallelIterations, maxThreads);
+        this.invocationsPerIteration = invocationsPerIteration;
+        this.seed = seed;
+        this.blockingTimeoutMillis = blockingTimeoutMillis;
+    }
+}
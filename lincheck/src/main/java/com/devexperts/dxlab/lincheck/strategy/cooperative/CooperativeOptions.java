@@ -0,0 +1,55 @@
+/*
+ * Lincheck - Linearizability checker
+ *
+ * Copyright (C) 2015-2022 Devexperts, LLC
+ * Copyright (C) 2023 Devexperts Ireland Limited
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed with this file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.devexperts.dxlab.lincheck.strategy.cooperative;
+
+import com.devexperts.dxlab.lincheck.Options;
+
+/**
+ * Options for {@link CooperativeStrategy cooperative} strategy.
+ */
+public class CooperativeOptions extends Options<CooperativeOptions, CooperativeCTestConfiguration> {
+    protected int invocationsPerIteration = CooperativeCTestConfiguration.DEFAULT_INVOCATIONS;
+    protected long seed = CooperativeCTestConfiguration.DEFAULT_SEED;
+    protected long blockingTimeoutMillis = CooperativeCTestConfiguration.DEFAULT_BLOCKING_TIMEOUT_MILLIS;
+
+    /**
+     * Run each test scenario {@code invocations} times.
+     */
+    public CooperativeOptions invocationsPerIteration(int invocations) {
+        this.invocationsPerIteration = invocations;
+        return this;
+    }
+
+    /**
+     * Use the specified seed for choosing the threads to switch to,
+     * the same seed leads to the same interleavings of the same scenarios.
+     */
+    public CooperativeOptions seed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * Consider the running thread blocked in a non-transformed code if it does not pass the control
+     * for the specified time, the rest of the invocation is executed without the control then.
+     */
+    public CooperativeOptions blockingTimeoutMillis(long timeoutMillis) {
+        this.blockingTimeoutMillis = timeoutMillis;
+        return this;
+    }
+
+    @Override
+    public CooperativeCTestConfiguration createTestConfigurations() {
+        return new CooperativeCTestConfiguration(iterations, threads, actorsPerThread, actorsBefore, actorsAfter,
+            executionGenerator, verifier, verificationThreads, parallelIterations, maxThreads, invocationsPerIteration,
+            seed, blockingTimeoutMillis);
+    }
+}
@@ -0,0 +1,444 @@
+/*
+ * Lincheck - Linearizability checker
+ *
+ * Copyright (C) 2015-2022 Devexperts, LLC
+ * Copyright (C) 2023 Devexperts Ireland Limited
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed with this file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.devexperts.dxlab.lincheck.strategy.cooperative;
+
+import com.devexperts.dxlab.lincheck.Reporter;
+import com.devexperts.dxlab.lincheck.execution.ExecutionScenario;
+import com.devexperts.dxlab.lincheck.strategy.ManagedStrategy;
+import com.devexperts.dxlab.lincheck.runner.ParallelThreadsRunner;
+import com.devexperts.dxlab.lincheck.verifier.Verifier;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This managed strategy lets only one test thread run at a time and switches to a randomly
+ * chosen thread before every shared variable access and monitor acquisition. The choices are made
+ * via {@link Random} with the specified seed, thus the interleavings are reproducible.
+ * The control is passed by writing the thread number into a volatile field, the other threads
+ * spin on it, so that the switch is cheap.
+ * <p>
+ * The blocking of the threads is tracked deterministically via the instrumented operations:
+ * the acquired monitors, {@code LockSupport.park/unpark}, {@code Object.wait/notify}
+ * and {@code Thread.interrupt}. The blocked threads are not chosen until they are woken up,
+ * and a thread which returns from a blocking call waits for its turn at the next instrumented operation.
+ * The operations with a timeout are considered timed out only if no other thread can run.
+ * <p>
+ * However, the strategy cannot manage the threads which block in the non-transformed code
+ * (e.g. on {@code java.util.concurrent} locks), and the order in which the JVM wakes up
+ * several threads notified on the same monitor. In these cases, or if the running thread does not pass
+ * the control for {@link CooperativeCTestConfiguration#blockingTimeoutMillis}, the rest of the invocation
+ * is executed without the control and is not reproducible. The number of such invocations
+ * is reported as a warning, see {@link #getUncontrolledInvocations()}.
+ */
+public class CooperativeStrategy extends ManagedStrategy {
+    private static final int SPINS_BEFORE_YIELD = 100;
+    private static final int NO_THREAD = -1;
+
+    // Thread states, the monitor which the thread waits on is stored to waitMonitors
+    private static final byte RUNNABLE = 0;
+    private static final byte PARKED = 1;
+    private static final byte WAITING = 2;
+
+    private final int invocations;
+    private final Random random;
+    // The running thread is considered blocked if it does not pass the control for this time
+    private final long blockingTimeoutNanos;
+
+    // The following state is accessed by the running thread only,
+    // the control passing via currentThread establishes happens-before
+    private final boolean[] finished;
+    private final Object[] awaitedMonitors; // null if the thread does not wait for a monitor
+    private final Map<Object, MonitorState> acquiredMonitors = new IdentityHashMap<>();
+    private final byte[] states;
+    private final boolean[] timed; // the thread is blocked with a timeout
+    private final boolean[] permits; // LockSupport.unpark permits
+    private final Object[] waitMonitors;
+    private final int[] waitAcquisitions; // the monitor acquisitions released by Object.wait
+    private final boolean[] notified;
+    // The thread is blocked with a timeout which is considered expired,
+    // the other threads wait for it without the time limit
+    private final boolean[] sleeping;
+
+    // The number of the thread which is allowed to run
+    private volatile int currentThread;
+    // The number of the control passes, is incremented by the running thread only
+    private volatile long controlPasses;
+    // The threads are not managed till the end of the invocation if true
+    private volatile boolean uncontrolled;
+    private int uncontrolledInvocations;
+
+    public CooperativeStrategy(Class<?> testClass, ExecutionScenario scenario,
+        Verifier verifier, CooperativeCTestConfiguration testCfg, Reporter reporter)
+    {
+        super(testClass, scenario, verifier, reporter, testCfg.verificationThreads);
+        this.invocations = testCfg.invocationsPerIteration;
+        this.random = new Random(testCfg.seed);
+        this.blockingTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(testCfg.blockingTimeoutMillis);
+        this.finished = new boolean[nThreads];
+        this.awaitedMonitors = new Object[nThreads];
+        this.states = new byte[nThreads];
+        this.timed = new boolean[nThreads];
+        this.permits = new boolean[nThreads];
+        this.waitMonitors = new Object[nThreads];
+        this.waitAcquisitions = new int[nThreads];
+        this.notified = new boolean[nThreads];
+        this.sleeping = new boolean[nThreads];
+    }
+
+    @Override
+    protected void runImpl() throws Exception {
+        for (int i = 0; i < invocations; i++) {
+            prepareInvocation();
+            verifyResults(runInvocation());
+            if (uncontrolled)
+                uncontrolledInvocations++;
+        }
+        if (uncontrolledInvocations > 0 && reporter != null)
+            reporter.logUncontrolledInvocations(uncontrolledInvocations, invocations);
+    }
+
+    /**
+     * Returns the number of the invocations which have been partially executed
+     * without the control, thus their interleavings are not reproducible.
+     */
+    public int getUncontrolledInvocations() {
+        return uncontrolledInvocations;
+    }
+
+    private void prepareInvocation() {
+        Arrays.fill(finished, false);
+        Arrays.fill(awaitedMonitors, null);
+        acquiredMonitors.clear();
+        Arrays.fill(states, RUNNABLE);
+        Arrays.fill(permits, false);
+        Arrays.fill(waitMonitors, null);
+        Arrays.fill(notified, false);
+        Arrays.fill(sleeping, false);
+        uncontrolled = false;
+        passControl(random.nextInt(nThreads));
+    }
+
+    @Override
+    public void onStart(int iThread) {
+        awaitTurn(iThread);
+    }
+
+    @Override
+    public void onFinish(int iThread) {
+        if (!enter(iThread))
+            return;
+        finished[iThread] = true;
+        passControl(chooseThreadOrLoseControl());
+    }
+
+    @Override
+    public void beforeSharedVariableRead(int iThread, int codeLocation) {
+        switchPoint(iThread);
+    }
+
+    @Override
+    public void beforeSharedVariableWrite(int iThread, int codeLocation) {
+        switchPoint(iThread);
+    }
+
+    @Override
+    public void beforeLockAcquire(int iThread, int codeLocation, Object monitor) {
+        if (!enter(iThread))
+            return;
+        switchTo(chooseThread(), iThread);
+        MonitorState state = acquiredMonitors.get(monitor);
+        while (state != null && state.owner != iThread) {
+            awaitedMonitors[iThread] = monitor;
+            if (!switchTo(chooseThread(), iThread))
+                return;
+            state = acquiredMonitors.get(monitor);
+        }
+        awaitedMonitors[iThread] = null;
+        if (state == null)
+            acquiredMonitors.put(monitor, new MonitorState(iThread, 1));
+        else
+            state.acquisitions++;
+    }
+
+    @Override
+    public void afterLockRelease(int iThread, int codeLocation, Object monitor) {
+        if (!enter(iThread))
+            return;
+        MonitorState state = acquiredMonitors.get(monitor);
+        if (state != null && --state.acquisitions == 0) {
+            acquiredMonitors.remove(monitor);
+            passMonitorToNotified(monitor);
+        }
+    }
+
+    @Override
+    public void beforePark(int iThread, int codeLocation, boolean withTimeout) {
+        if (!enter(iThread))
+            return;
+        // The park returns immediately if there is a permit or the thread is interrupted
+        if (permits[iThread] || Thread.currentThread().isInterrupted()) {
+            permits[iThread] = false;
+            switchTo(chooseThread(), iThread);
+            return;
+        }
+        states[iThread] = PARKED;
+        timed[iThread] = withTimeout;
+        passControl(chooseThreadOrLoseControl());
+    }
+
+    @Override
+    public void afterUnpark(int iThread, int codeLocation, Object thread) {
+        if (!enter(iThread))
+            return;
+        int iUnparked = testThreadNumber(thread);
+        if (iUnparked == NO_THREAD)
+            return;
+        if (states[iUnparked] == PARKED)
+            states[iUnparked] = RUNNABLE;
+        else
+            permits[iUnparked] = true;
+    }
+
+    @Override
+    public void beforeWait(int iThread, int codeLocation, Object monitor, boolean withTimeout) {
+        if (!enter(iThread))
+            return;
+        MonitorState state = acquiredMonitors.get(monitor);
+        // Object.wait throws an exception immediately if the monitor is not
+        // acquired or the thread is interrupted, the monitor is not released then
+        if (state == null || state.owner != iThread || Thread.currentThread().isInterrupted()) {
+            switchTo(chooseThread(), iThread);
+            return;
+        }
+        // The monitor is released until the thread is notified
+        acquiredMonitors.remove(monitor);
+        states[iThread] = WAITING;
+        timed[iThread] = withTimeout;
+        waitMonitors[iThread] = monitor;
+        waitAcquisitions[iThread] = state.acquisitions;
+        passMonitorToNotified(monitor);
+        passControl(chooseThreadOrLoseControl());
+    }
+
+    @Override
+    public void afterNotify(int iThread, int codeLocation, Object monitor, boolean notifyAll) {
+        if (!enter(iThread))
+            return;
+        int nWaiting = 0;
+        for (int t = 0; t < nThreads; t++) {
+            if (isWaitingForNotification(t, monitor)) {
+                nWaiting++;
+                if (notifyAll)
+                    notified[t] = true;
+            }
+        }
+        if (notifyAll || nWaiting == 0)
+            return;
+        if (nWaiting > 1) {
+            uncontrolled = true; // the JVM chooses the thread to be notified
+            return;
+        }
+        for (int t = 0; t < nThreads; t++) {
+            if (isWaitingForNotification(t, monitor))
+                notified[t] = true;
+        }
+    }
+
+    @Override
+    public void afterThreadInterrupt(int iThread, int codeLocation, int iInterruptedThread) {
+        if (!enter(iThread) || iInterruptedThread < 0 || iInterruptedThread >= nThreads)
+            return;
+        // The interrupted thread returns from park, or re-acquires the monitor and throws from Object.wait
+        if (states[iInterruptedThread] == PARKED)
+            states[iInterruptedThread] = RUNNABLE;
+        else if (states[iInterruptedThread] == WAITING)
+            notified[iInterruptedThread] = true;
+    }
+
+    private boolean isWaitingForNotification(int iThread, Object monitor) {
+        return states[iThread] == WAITING && waitMonitors[iThread] == monitor && !notified[iThread];
+    }
+
+    /**
+     * Passes the released monitor to the notified thread, which re-acquires it when returns from {@code Object.wait}.
+     * If several threads are notified, the JVM chooses the thread which acquires the monitor first,
+     * thus the threads are not controlled then.
+     */
+    private void passMonitorToNotified(Object monitor) {
+        int next = NO_THREAD;
+        for (int t = 0; t < nThreads; t++) {
+            if (states[t] != WAITING || waitMonitors[t] != monitor || !notified[t])
+                continue;
+            if (next != NO_THREAD) {
+                uncontrolled = true;
+                return;
+            }
+            next = t;
+        }
+        if (next != NO_THREAD)
+            wakeUpWaiting(next);
+    }
+
+    private void wakeUpWaiting(int iThread) {
+        acquiredMonitors.put(waitMonitors[iThread], new MonitorState(iThread, waitAcquisitions[iThread]));
+        states[iThread] = RUNNABLE;
+        waitMonitors[iThread] = null;
+        notified[iThread] = false;
+    }
+
+    private boolean isControlled(int iThread) {
+        // Init and post parts are executed in the main thread
+        return iThread < nThreads && !uncontrolled;
+    }
+
+    /**
+     * Is invoked at the beginning of every hook. If the thread returns from a blocking call,
+     * it waits until the control is passed to it.
+     *
+     * @return {@code false} if the thread is not controlled.
+     */
+    private boolean enter(int iThread) {
+        if (!isControlled(iThread))
+            return false;
+        if (currentThread != iThread)
+            awaitTurn(iThread);
+        sleeping[iThread] = false;
+        return !uncontrolled;
+    }
+
+    private void switchPoint(int iThread) {
+        if (enter(iThread))
+            switchTo(chooseThread(), iThread);
+    }
+
+    /**
+     * Passes the control to the specified thread and waits until the current one gets it back.
+     *
+     * @return {@code false} if the threads are not controlled anymore.
+     */
+    private boolean switchTo(int next, int iThread) {
+        if (next == NO_THREAD) {
+            uncontrolled = true; // deadlock
+            return false;
+        }
+        if (next != iThread) {
+            passControl(next);
+            awaitTurn(iThread);
+        }
+        return !uncontrolled;
+    }
+
+    private int chooseThreadOrLoseControl() {
+        int next = chooseThread();
+        // All the remaining threads are blocked otherwise
+        if (next == NO_THREAD && !allFinished())
+            uncontrolled = true;
+        return next;
+    }
+
+    private void passControl(int next) {
+        controlPasses++; // the only writer is the running thread
+        currentThread = next;
+    }
+
+    private void awaitTurn(int iThread) {
+        // Only the silence of the running thread is timed, thus the deadline is restarted
+        // whenever the control is passed. The thread which is blocked with an expired timeout
+        // is not timed since it returns by itself.
+        long passes = controlPasses;
+        long deadline = 0;
+        for (int spins = 0; currentThread != iThread && !uncontrolled; spins++) {
+            long currentPasses = controlPasses;
+            if (currentPasses != passes) {
+                passes = currentPasses;
+                deadline = 0;
+                spins = 0;
+                continue;
+            }
+            if (spins < SPINS_BEFORE_YIELD)
+                continue;
+            Thread.yield();
+            int running = currentThread;
+            if (running >= 0 && sleeping[running]) {
+                deadline = 0;
+            } else if (deadline == 0) {
+                deadline = System.nanoTime() + blockingTimeoutNanos;
+            } else if (System.nanoTime() > deadline) {
+                uncontrolled = true;
+            }
+        }
+    }
+
+    /**
+     * Chooses a random thread among the ones which can run. If all the threads are blocked,
+     * chooses a random one among those which are blocked with a timeout and considers the timeout expired.
+     * Returns {@link #NO_THREAD} if there are no such threads.
+     */
+    private int chooseThread() {
+        int[] candidates = new int[nThreads];
+        int n = 0;
+        for (int t = 0; t < nThreads; t++) {
+            if (!finished[t] && states[t] == RUNNABLE && !waitsForMonitor(t))
+                candidates[n++] = t;
+        }
+        if (n > 0)
+            return candidates[random.nextInt(n)];
+        for (int t = 0; t < nThreads; t++) {
+            if (!finished[t] && timed[t] && (states[t] == PARKED ||
+                states[t] == WAITING && !acquiredMonitors.containsKey(waitMonitors[t])))
+            {
+                candidates[n++] = t;
+            }
+        }
+        if (n == 0)
+            return NO_THREAD;
+        int next = candidates[random.nextInt(n)];
+        if (states[next] == WAITING)
+            wakeUpWaiting(next);
+        states[next] = RUNNABLE;
+        sleeping[next] = true;
+        return next;
+    }
+
+    private boolean waitsForMonitor(int iThread) {
+        Object monitor = awaitedMonitors[iThread];
+        return monitor != null && acquiredMonitors.containsKey(monitor);
+    }
+
+    private boolean allFinished() {
+        for (boolean f : finished) {
+            if (!f)
+                return false;
+        }
+        return true;
+    }
+
+    private int testThreadNumber(Object thread) {
+        if (!(thread instanceof ParallelThreadsRunner.TestThread))
+            return NO_THREAD;
+        int iThread = ((ParallelThreadsRunner.TestThread) thread).iThread;
+        return iThread < nThreads ? iThread : NO_THREAD;
+    }
+
+    private static class MonitorState {
+        final int owner;
+        int acquisitions;
+
+        MonitorState(int owner, int acquisitions) {
+            this.owner = owner;
+            this.acquisitions = acquisitions;
+        }
+    }
+}
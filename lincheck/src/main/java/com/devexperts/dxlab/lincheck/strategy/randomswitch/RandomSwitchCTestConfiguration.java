@@ -24,9 +24,10 @@ public class RandomSwitchCTestConfiguration extends CTestConfiguration {
 
     public RandomSwitchCTestConfiguration(int iterations, int threads, int actorsPerThread, int actorsBefore,
         int actorsAfter, Class<? extends ExecutionGenerator> generatorClass, Class<? extends Verifier> verifierClass,
-        int invocationsPerIteration)
+        int verificationThreads, int parallelIterations, int maxThreads, int invocationsPerIteration)
     {
-        super(iterations, threads, actorsPerThread, actorsBefore, actorsAfter, generatorClass, verifierClass);
+        super(iterations, threads, actorsPerThread, actorsBefore, actorsAfter, generatorClass, verifierClass,
+            verificationThreads, parallelIterations, maxThreads);
         this.invocationsPerIteration = invocationsPerIteration;
     }
 }
@@ -29,6 +29,6 @@ public class RandomSwitchOptions extends Options<RandomSwitchOptions, RandomSwit
     @Override
     public RandomSwitchCTestConfiguration createTestConfigurations() {
         return new RandomSwitchCTestConfiguration(iterations, threads, actorsPerThread, actorsBefore, actorsAfter,
-            executionGenerator, verifier, invocationsPerIteration);
+            executionGenerator, verifier, verificationThreads, parallelIterations, maxThreads, invocationsPerIteration);
     }
 }
@@ -27,7 +27,7 @@ public class RandomSwitchStrategy extends ManagedStrategy {
     public RandomSwitchStrategy(Class<?> testClass, ExecutionScenario scenario,
         Verifier verifier, RandomSwitchCTestConfiguration testCfg, Reporter reporter)
     {
-        super(testClass, scenario, verifier, reporter);
+        super(testClass, scenario, verifier, reporter, testCfg.verificationThreads);
         this.invocations = testCfg.invocationsPerIteration;
     }
 
@@ -43,6 +43,11 @@ public @interface StressCTest {
      */
     int invocationsPerIteration() default StressCTestConfiguration.DEFAULT_INVOCATIONS;
 
+    /**
+     * Hand off the invocations to the test threads in batches of the specified size, should be positive.
+     */
+    int invocationsPerBatch() default StressCTestConfiguration.DEFAULT_INVOCATIONS_PER_BATCH;
+
     /**
      * Use the specified number of threads for the parallel part of an execution.
      * <p>
@@ -93,6 +98,28 @@ public @interface StressCTest {
      */
     Class<? extends Verifier> verifier() default LinearizabilityVerifier.class;
 
+    /**
+     * Verify results in the specified number of threads asynchronously with the execution,
+     * {@code 0} means that results are verified synchronously.
+     * <p>
+     * Note, that the verifier should be thread-safe in this case.
+     */
+    int verificationThreads() default CTestConfiguration.DEFAULT_VERIFICATION_THREADS;
+
+    /**
+     * Run the specified number of iterations in parallel, each with its own strategy and runner.
+     * The classes are loaded by a separate class loader per iteration only if they are transformed,
+     * otherwise the iterations share the static state of the test class.
+     * Scenarios are generated sequentially, so the iteration numbers do not depend on this option.
+     */
+    int parallelIterations() default CTestConfiguration.DEFAULT_PARALLEL_ITERATIONS;
+
+    /**
+     * Limit the total number of threads used by parallel iterations,
+     * {@code 0} means the number of available processors.
+     */
+    int maxThreads() default CTestConfiguration.DEFAULT_MAX_THREADS;
+
     /**
      * Holder annotation for {@link StressCTest}.
      * Not a public API.
@@ -19,16 +19,22 @@ import com.devexperts.dxlab.lincheck.verifier.Verifier;
  */
 public class StressCTestConfiguration extends CTestConfiguration {
     public static final int DEFAULT_INVOCATIONS = 1_000;
+    public static final int DEFAULT_INVOCATIONS_PER_BATCH = 10;
 
     public final int invocationsPerIteration;
+    public final int invocationsPerBatch;
     public final boolean addWaits;
 
     public StressCTestConfiguration(int iterations, int threads, int actorsPerThread, int actorsBefore, int actorsAfter,
         Class<? extends ExecutionGenerator> generatorClass, Class<? extends Verifier> verifierClass,
-        int invocationsPerIteration, boolean addWaits)
+        int verificationThreads, int parallelIterations, int maxThreads, int invocationsPerIteration, int invocationsPerBatch, boolean addWaits)
     {
-        super(iterations, threads, actorsPerThread, actorsBefore, actorsAfter, generatorClass, verifierClass);
+        super(iterations, threads, actorsPerThread, actorsBefore, actorsAfter, generatorClass, verifierClass,
+            verificationThreads, parallelIterations, maxThreads);
+        if (invocationsPerBatch <= 0)
+            throw new IllegalArgumentException("Invocations per batch should be positive: " + invocationsPerBatch);
         this.invocationsPerIteration = invocationsPerIteration;
+        this.invocationsPerBatch = invocationsPerBatch;
         this.addWaits = addWaits;
     }
 }
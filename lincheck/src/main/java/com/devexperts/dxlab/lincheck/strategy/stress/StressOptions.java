@@ -17,6 +17,7 @@ import com.devexperts.dxlab.lincheck.Options;
  */
 public class StressOptions extends Options<StressOptions, StressCTestConfiguration> {
     protected int invocationsPerIteration = StressCTestConfiguration.DEFAULT_INVOCATIONS;
+    protected int invocationsPerBatch = StressCTestConfiguration.DEFAULT_INVOCATIONS_PER_BATCH;
     protected boolean addWaits = true;
 
     /**
@@ -27,6 +28,16 @@ public class StressOptions extends Options<StressOptions, StressCTestConfigurati
         return this;
     }
 
+    /**
+     * Hand off the invocations to the test threads in batches of the specified size, should be positive.
+     */
+    public StressOptions invocationsPerBatch(int invocations) {
+        if (invocations <= 0)
+            throw new IllegalArgumentException("Invocations per batch should be positive: " + invocations);
+        this.invocationsPerBatch = invocations;
+        return this;
+    }
+
     /**
      * Set this to {@code false} to disable random waits between operations, enabled by default.
      */
@@ -38,6 +49,6 @@ public class StressOptions extends Options<StressOptions, StressCTestConfigurati
     @Override
     public StressCTestConfiguration createTestConfigurations() {
         return new StressCTestConfiguration(iterations, threads, actorsPerThread, actorsBefore, actorsAfter,
-            executionGenerator, verifier, invocationsPerIteration, addWaits);
+            executionGenerator, verifier, verificationThreads, parallelIterations, maxThreads, invocationsPerIteration, invocationsPerBatch, addWaits);
     }
 }
@@ -12,6 +12,7 @@ package com.devexperts.dxlab.lincheck.strategy.stress;
 
 import com.devexperts.dxlab.lincheck.Actor;
 import com.devexperts.dxlab.lincheck.Reporter;
+import com.devexperts.dxlab.lincheck.execution.ExecutionResult;
 import com.devexperts.dxlab.lincheck.execution.ExecutionScenario;
 import com.devexperts.dxlab.lincheck.runner.ParallelThreadsRunner;
 import com.devexperts.dxlab.lincheck.runner.Runner;
@@ -21,7 +22,6 @@ import com.devexperts.dxlab.lincheck.verifier.Verifier;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
-import java.util.concurrent.Phaser;
 
 /**
  * This strategy
@@ -31,6 +31,7 @@ public class StressStrategy extends Strategy {
     private final Random random = new Random(0);
 
     private final int invocations;
+    private final int invocationsPerBatch;
     private final Runner runner;
 
     private final List<int[]> waits;
@@ -38,8 +39,9 @@ public class StressStrategy extends Strategy {
     public StressStrategy(Class<?> testClass, ExecutionScenario scenario,
         Verifier verifier, StressCTestConfiguration testCfg, Reporter reporter)
     {
-        super(scenario, verifier, reporter);
+        super(scenario, verifier, reporter, testCfg.verificationThreads);
         this.invocations = testCfg.invocationsPerIteration;
+        this.invocationsPerBatch = testCfg.invocationsPerBatch;
         // Create waits if needed
         waits = testCfg.addWaits ? new ArrayList<>() : null;
         if (testCfg.addWaits) {
@@ -47,23 +49,16 @@ public class StressStrategy extends Strategy {
                 waits.add(new int[actorsForThread.size()]);
             }
         }
-        // Create runner
-        Phaser phaser = new Phaser(testCfg.threads);
-        runner = new ParallelThreadsRunner(scenario, this, testClass, null) {
-            @Override
-            public void onStart(int iThread) {
-                super.onStart(iThread);
-                phaser.arriveAndAwaitAdvance();
-            }
-        };
+        // Create runner, it starts all threads simultaneously
+        runner = new ParallelThreadsRunner(scenario, this, testClass, null);
     }
 
     @Override
     public void run() throws InterruptedException {
         try {
-            // Run invocations
-            for (int invocation = 0; invocation < invocations; invocation++) {
-                // Specify waits if needed
+            // Run invocations in batches
+            for (int invocation = 0; invocation < invocations; invocation += invocationsPerBatch) {
+                // Specify waits if needed, they are the same for all the invocations of a batch
                 if (waits != null) {
                     int maxWait = (int) ((float) invocation * MAX_WAIT / invocations) + 1;
                     for (int[] waitsForThread : waits) {
@@ -72,7 +67,9 @@ public class StressStrategy extends Strategy {
                         }
                     }
                 }
-                verifyResults(runner.run());
+                int batchSize = Math.min(invocationsPerBatch, invocations - invocation);
+                for (ExecutionResult result : runner.runBatch(batchSize))
+                    verifyResults(result);
             }
         } finally {
             runner.close();
@@ -10,9 +10,15 @@
 
 package com.devexperts.dxlab.lincheck.verifier;
 
+import com.devexperts.dxlab.lincheck.Result;
 import com.devexperts.dxlab.lincheck.execution.ExecutionResult;
+import com.devexperts.dxlab.lincheck.runner.PackedResults;
+import com.devexperts.dxlab.lincheck.runner.TestThreadExecution;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -20,16 +26,343 @@ import java.util.Set;
  * and look into this hash table at first. In case of many invocations
  * with the same scenario, this optimization improves the verification
  * phase significantly.
+ * <p>
+ * In order not to store the results themselves, the table contains
+ * their 128-bit fingerprints only and is bounded, see {@link CachedVerifierConf}.
+ * The fingerprints encode the results exactly only if their values are primitive wrappers,
+ * strings or {@code null}, thus the other results are cached as they are and compared via
+ * {@link ExecutionResult#equals(Object)}; this cache is cleared when it reaches the capacity.
+ * <p>
+ * The results produced by the runner are fingerprinted directly from their packed form
+ * (see {@link PackedResults}), thus {@link Result} objects are created only if the results
+ * are not found in the cache and should be verified.
  */
 public abstract class CachedVerifier implements Verifier {
-    private final Set<ExecutionResult> previousResults = new HashSet<>();
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+    private static final int MAX_PROBES = 8;
+    // Types which values are encoded in fingerprints exactly
+    private static final List<Class<?>> FAITHFUL_TYPES = Arrays.asList(String.class, Boolean.class,
+        Character.class, Byte.class, Short.class, Integer.class, Long.class, Float.class, Double.class);
+    // Indices of FAITHFUL_TYPES by the packed primitive result types, see TestThreadExecution.RESULT_*
+    private static final int[] PRIMITIVE_TYPE_INDICES = new int[TestThreadExecution.RESULT_DOUBLE + 1];
+
+    static {
+        PRIMITIVE_TYPE_INDICES[TestThreadExecution.RESULT_BOOLEAN] = FAITHFUL_TYPES.indexOf(Boolean.class);
+        PRIMITIVE_TYPE_INDICES[TestThreadExecution.RESULT_BYTE] = FAITHFUL_TYPES.indexOf(Byte.class);
+        PRIMITIVE_TYPE_INDICES[TestThreadExecution.RESULT_CHAR] = FAITHFUL_TYPES.indexOf(Character.class);
+        PRIMITIVE_TYPE_INDICES[TestThreadExecution.RESULT_SHORT] = FAITHFUL_TYPES.indexOf(Short.class);
+        PRIMITIVE_TYPE_INDICES[TestThreadExecution.RESULT_INT] = FAITHFUL_TYPES.indexOf(Integer.class);
+        PRIMITIVE_TYPE_INDICES[TestThreadExecution.RESULT_LONG] = FAITHFUL_TYPES.indexOf(Long.class);
+        PRIMITIVE_TYPE_INDICES[TestThreadExecution.RESULT_FLOAT] = FAITHFUL_TYPES.indexOf(Float.class);
+        PRIMITIVE_TYPE_INDICES[TestThreadExecution.RESULT_DOUBLE] = FAITHFUL_TYPES.indexOf(Double.class);
+    }
+
+    /**
+     * Determines what happens when the cache is full.
+     */
+    public enum EvictionPolicy {
+        /**
+         * Clear the whole cache when it is filled by 3/4.
+         */
+        CLEAR,
+        /**
+         * Replace one of the already cached results which
+         * fingerprints collide with the new one in the table.
+         */
+        REPLACE
+    }
+
+    // Open-addressing table of 128-bit fingerprints, (0, 0) means empty slot
+    private final long[] table;
+    private final int mask;
+    private final EvictionPolicy evictionPolicy;
+    private int size;
+    // Results which cannot be fingerprinted exactly, see FAITHFUL_TYPES
+    private final Set<ExecutionResult> exactResults = new HashSet<>();
+    private final int capacity;
+    private long hits;
+    private long misses;
+
+    protected CachedVerifier() {
+        this(DEFAULT_CAPACITY, EvictionPolicy.CLEAR);
+    }
+
+    /**
+     * Uses the cache configuration from {@link CachedVerifierConf} if it is presented on the test class.
+     */
+    protected CachedVerifier(Class<?> testClass) {
+        this(testClass.isAnnotationPresent(CachedVerifierConf.class) ?
+                testClass.getAnnotation(CachedVerifierConf.class).capacity() : DEFAULT_CAPACITY,
+            testClass.isAnnotationPresent(CachedVerifierConf.class) ?
+                testClass.getAnnotation(CachedVerifierConf.class).evictionPolicy() : EvictionPolicy.CLEAR);
+    }
+
+    protected CachedVerifier(int capacity, EvictionPolicy evictionPolicy) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("Cache capacity should be positive: " + capacity);
+        int tableSize = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1; // next power of two
+        this.table = new long[2 * tableSize];
+        this.mask = tableSize - 1;
+        this.evictionPolicy = evictionPolicy;
+        this.capacity = capacity;
+    }
 
     @Override
     public final boolean verifyResults(ExecutionResult results) {
-        if (!previousResults.add(results))
-            return true;
-        return verifyResultsImpl(results);
+        boolean withHBClocks = usesHBClocks();
+        if (!hasFaithfulValues(results))
+            return verifyResultsExactly(results, withHBClocks);
+        long fp1 = fingerprint(results, withHBClocks, 0x9E3779B97F4A7C15L);
+        long fp2 = fingerprint(results, withHBClocks, 0xC2B2AE3D27D4EB4FL);
+        if (fp1 == 0 && fp2 == 0)
+            fp1 = 1; // (0, 0) is reserved for empty slots
+        synchronized (this) {
+            if (contains(fp1, fp2)) {
+                hits++;
+                return true;
+            }
+            misses++;
+        }
+        boolean correct = verifyResultsImpl(results);
+        // Incorrect results are not cached, they should be reported every time
+        if (correct) {
+            synchronized (this) {
+                add(fp1, fp2);
+            }
+        }
+        return correct;
+    }
+
+    /**
+     * Looks up the results in {@link #exactResults} instead of the fingerprints table.
+     */
+    private boolean verifyResultsExactly(ExecutionResult results, boolean withHBClocks) {
+        // The parallel results are materialized in order not to retain the whole batch, see PackedResults
+        List<List<Result>> parallelResults = new ArrayList<>(results.parallelResults.size());
+        for (List<Result> threadResults : results.parallelResults)
+            parallelResults.add(new ArrayList<>(threadResults));
+        ExecutionResult key = new ExecutionResult(results.initResults, parallelResults, results.postResults,
+            withHBClocks ? results.getParallelHBClocks() : null);
+        synchronized (this) {
+            if (exactResults.contains(key)) {
+                hits++;
+                return true;
+            }
+            misses++;
+        }
+        boolean correct = verifyResultsImpl(results);
+        if (correct) {
+            synchronized (this) {
+                if (exactResults.size() >= capacity)
+                    exactResults.clear();
+                exactResults.add(key);
+            }
+        }
+        return correct;
     }
 
     public abstract boolean verifyResultsImpl(ExecutionResult results);
+
+    /**
+     * Returns {@code true} if the verification depends on {@link ExecutionResult#getParallelHBClocks()},
+     * in this case they are taken into account when results are looked up in the cache.
+     * Otherwise, the same results with different happens-before clocks are verified once.
+     */
+    protected boolean usesHBClocks() {
+        return false;
+    }
+
+    /**
+     * Returns the number of results which have been found in the cache.
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of results which have not been found in the cache and have been verified.
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    private boolean contains(long fp1, long fp2) {
+        for (int probe = 0, i = (int) fp1 & mask; probe < MAX_PROBES; probe++, i = (i + 1) & mask) {
+            long k1 = table[2 * i];
+            long k2 = table[2 * i + 1];
+            if (k1 == fp1 && k2 == fp2)
+                return true;
+            if (k1 == 0 && k2 == 0)
+                return false;
+        }
+        return false;
+    }
+
+    private void add(long fp1, long fp2) {
+        if (evictionPolicy == EvictionPolicy.CLEAR && size >= (mask + 1) / 4 * 3) {
+            Arrays.fill(table, 0);
+            size = 0;
+        }
+        int home = (int) fp1 & mask;
+        for (int probe = 0, i = home; probe < MAX_PROBES; probe++, i = (i + 1) & mask) {
+            long k1 = table[2 * i];
+            long k2 = table[2 * i + 1];
+            if (k1 == fp1 && k2 == fp2)
+                return;
+            if (k1 == 0 && k2 == 0) {
+                table[2 * i] = fp1;
+                table[2 * i + 1] = fp2;
+                size++;
+                return;
+            }
+        }
+        // All the probed slots are occupied, replace the one
+        // determined by the fingerprint in order to spread replacements
+        int i = (home + (int) (fp2 & Integer.MAX_VALUE) % MAX_PROBES) & mask;
+        table[2 * i] = fp1;
+        table[2 * i + 1] = fp2;
+    }
+
+    /**
+     * Returns {@code true} if all the values of the results can be encoded in fingerprints exactly,
+     * see {@link #FAITHFUL_TYPES}. The thrown exceptions are encoded by their class names.
+     */
+    private static boolean hasFaithfulValues(ExecutionResult results) {
+        if (!hasFaithfulValues(results.initResults) || !hasFaithfulValues(results.postResults))
+            return false;
+        for (List<Result> threadResults : results.parallelResults) {
+            if (!hasFaithfulValues(threadResults))
+                return false;
+        }
+        return true;
+    }
+
+    private static boolean hasFaithfulValues(List<Result> results) {
+        if (results instanceof PackedResults) {
+            PackedResults packed = (PackedResults) results;
+            for (int i = 0; i < packed.size(); i++) {
+                // Primitive values and exception classes are always encoded exactly
+                if (packed.getType(i) == TestThreadExecution.RESULT_OBJECT && !isFaithful(packed.getObject(i)))
+                    return false;
+            }
+            return true;
+        }
+        for (Result r : results) {
+            if (!isFaithful(r.getValue()))
+                return false;
+        }
+        return true;
+    }
+
+    private static boolean isFaithful(Object value) {
+        return value == null || FAITHFUL_TYPES.contains(value.getClass());
+    }
+
+    /**
+     * Counts 64-bit fingerprint of the results, different seeds produce independent fingerprints.
+     * The results should have faithful values only (see {@link #hasFaithfulValues}), which are
+     * encoded exactly, so that the fingerprints of different results collide with a negligible probability.
+     */
+    private static long fingerprint(ExecutionResult results, boolean withHBClocks, long seed) {
+        long h = seed;
+        h = fingerprint(h, results.initResults);
+        for (List<Result> threadResults : results.parallelResults)
+            h = fingerprint(h, threadResults);
+        h = fingerprint(h, results.postResults);
+        int[][][] clocks = withHBClocks ? results.getParallelHBClocks() : null;
+        if (clocks != null) {
+            for (int[][] threadClocks : clocks) {
+                for (int[] clock : threadClocks) {
+                    for (int c : clock)
+                        h = mix(h + c);
+                }
+            }
+        }
+        return mix(h);
+    }
+
+    private static long fingerprint(long h, List<Result> results) {
+        h = mix(h + results.size());
+        if (results instanceof PackedResults)
+            return fingerprint(h, (PackedResults) results);
+        for (Result r : results) {
+            h = mix(h + r.getType().ordinal());
+            if (r.getType() == Result.Type.EXCEPTION) {
+                h = fingerprint(h, r.getThrowableClass().getName());
+                continue;
+            }
+            h = fingerprintValue(h, r.getValue());
+        }
+        return h;
+    }
+
+    /**
+     * Encodes the packed results without creating {@link Result} objects,
+     * the fingerprint is the same as the one of the materialized results.
+     */
+    private static long fingerprint(long h, PackedResults results) {
+        for (int i = 0; i < results.size(); i++) {
+            byte type = results.getType(i);
+            long p = results.getPrimitive(i);
+            switch (type) {
+            case TestThreadExecution.RESULT_VOID:
+                h = mix(mix(h + Result.Type.VOID.ordinal()));
+                break;
+            case TestThreadExecution.RESULT_EXCEPTION:
+                h = mix(h + Result.Type.EXCEPTION.ordinal());
+                h = fingerprint(h, ((Class<?>) results.getObject(i)).getName());
+                break;
+            case TestThreadExecution.RESULT_OBJECT:
+                h = fingerprintValue(mix(h + Result.Type.VALUE.ordinal()), results.getObject(i));
+                break;
+            default: // primitive value
+                h = mix(h + Result.Type.VALUE.ordinal());
+                h = mix(h + 1 + PRIMITIVE_TYPE_INDICES[type]);
+                if (type == TestThreadExecution.RESULT_FLOAT) {
+                    h = mix(h + Double.doubleToLongBits(Float.intBitsToFloat((int) p)));
+                } else if (type == TestThreadExecution.RESULT_DOUBLE) {
+                    h = mix(h + Double.doubleToLongBits(Double.longBitsToDouble(p)));
+                } else {
+                    h = mix(h + p); // booleans, chars and integers are stored as their values
+                }
+            }
+        }
+        return h;
+    }
+
+    private static long fingerprintValue(long h, Object value) {
+        if (value == null)
+            return mix(h);
+        // The type is encoded by its index, the value itself is encoded exactly
+        h = mix(h + 1 + FAITHFUL_TYPES.indexOf(value.getClass()));
+        if (value instanceof String) {
+            h = fingerprint(h, (String) value);
+        } else if (value instanceof Boolean) {
+            h = mix(h + ((Boolean) value ? 1 : 0));
+        } else if (value instanceof Character) {
+            h = mix(h + (Character) value);
+        } else if (value instanceof Float || value instanceof Double) {
+            h = mix(h + Double.doubleToLongBits(((Number) value).doubleValue()));
+        } else {
+            h = mix(h + ((Number) value).longValue());
+        }
+        return h;
+    }
+
+    private static long fingerprint(long h, String s) {
+        h = mix(h + s.length());
+        for (int i = 0; i < s.length(); i++)
+            h = mix(h + s.charAt(i));
+        return h;
+    }
+
+    // Finalization step of MurmurHash3
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
 }
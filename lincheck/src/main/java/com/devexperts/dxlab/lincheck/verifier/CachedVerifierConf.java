@@ -0,0 +1,34 @@
+/*
+ * Lincheck - Linearizability checker
+ *
+ * Copyright (C) 2015-2022 Devexperts, LLC
+ * Copyright (C) 2023 Devexperts Ireland Limited
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed with this file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.devexperts.dxlab.lincheck.verifier;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * This annotation configures the cache of already verified results
+ * (see {@link CachedVerifier}) and is optional.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface CachedVerifierConf {
+    /**
+     * The maximal number of cached results, rounded up to a power of two.
+     */
+    int capacity() default CachedVerifier.DEFAULT_CAPACITY;
+
+    /**
+     * What to do when the cache is full.
+     */
+    CachedVerifier.EvictionPolicy evictionPolicy() default CachedVerifier.EvictionPolicy.CLEAR;
+}
@@ -15,6 +15,11 @@ import com.devexperts.dxlab.lincheck.Result
 import com.devexperts.dxlab.lincheck.execution.ExecutionResult
 import com.devexperts.dxlab.lincheck.execution.ExecutionScenario
 import com.devexperts.dxlab.lincheck.verifier.quantitative.ExtendedLTS
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ForkJoinPool
+import java.util.concurrent.ForkJoinTask
+import java.util.concurrent.RecursiveAction
+import java.util.concurrent.atomic.AtomicBoolean
 
 
 /**
@@ -24,26 +29,187 @@ import com.devexperts.dxlab.lincheck.verifier.quantitative.ExtendedLTS
  * To determine which transitions are possible from the current state, we store related
  * to the current path prefix information in the special [LTSContext], which determines
  * the next possible transitions using [LTSContext.nextContexts] function. This verifier
- * uses depth-first search to find a proper path.
+ * uses depth-first search to find a proper path. The already explored contexts are memoized
+ * by [LTSContext.visitedKey], so that the same configuration reached via different
+ * interleavings is expanded only once. If [ParallelLTSVerifierConf] is presented on
+ * the test class, the search is performed in a fork/join pool, see [SearchTask].
  */
-abstract class AbstractLTSVerifier<STATE>(val scenario: ExecutionScenario, val testClass: Class<*>) : CachedVerifier() {
+abstract class AbstractLTSVerifier<STATE>(val scenario: ExecutionScenario, val testClass: Class<*>) : CachedVerifier(testClass) {
+    // Parallel search configuration, null if the search is sequential
+    private val parallelConf: ParallelLTSVerifierConf? = testClass.getAnnotation(ParallelLTSVerifierConf::class.java)
+
     abstract fun createInitialContext(results: ExecutionResult): LTSContext<STATE>
 
     override fun verifyResultsImpl(results: ExecutionResult): Boolean {
-        return verify(createInitialContext(results))
+        val conf = parallelConf ?: return verify(createInitialContext(results), HashSet(), null)
+        val found = AtomicBoolean()
+        val visited: MutableSet<Any> = ConcurrentHashMap.newKeySet()
+        forkJoinPool(conf.parallelism).invoke(SearchTask(createInitialContext(results), 0, conf.splitDepth, visited, found))
+        return found.get()
     }
 
-    private fun verify(context: LTSContext<STATE>): Boolean {
-        // Check if a possible path is found.
-        if (context.completed) return true
-        // Traverse through next possible transitions using depth-first search (DFS). Note that
-        // initial and post parts are represented as threads with ids `0` and `threads + 1` respectively.
-        for (threadId in 0..scenario.threads + 1) {
-            for (c in context.nextContexts(threadId)) {
-                if (verify(c)) return true
+    /**
+     * Returns `true` if a path is found. In the parallel mode, [found] is set by the task
+     * which has found a path, so that all the others stop exploring their sub-trees.
+     *
+     * The search uses sleep sets in order not to explore orders of commuting actors
+     * (see [LTSContext.commute]) which have already been explored from the same prefix.
+     * After all next contexts for a thread are explored, this thread is put into
+     * the sleep sets of the next contexts for the following threads, until an actor
+     * which does not commute with the thread's next one is executed.
+     */
+    private fun verify(context: LTSContext<STATE>, visited: MutableSet<Any>, found: AtomicBoolean?): Boolean {
+        // Every transition executes one actor, thus the search depth is bounded
+        // by the number of the remaining actors and the stack is never grown.
+        val stack = SearchStack<STATE>(context.totalActors - context.totalExecuted + 1)
+        var next: LTSContext<STATE>? = context
+        var nextSleep = 0L
+        while (true) {
+            if (next != null) {
+                if (found != null && found.get()) return false
+                // Check if a possible path is found.
+                if (next.completed) return true
+                // Check if this configuration has already been explored, no path has been found from it
+                // since the search stops at the first found one. In the parallel mode, it can be still
+                // being explored by another task, which reports the found path itself. The sleep set is
+                // a part of the configuration since the same context with it is explored partially.
+                val key = next.visitedKey
+                if (key == null || visited.add(if (nextSleep == 0L) key else SleepingVisitedKey(key, nextSleep)))
+                    stack.push(next, nextSleep)
             }
+            if (stack.isEmpty) return false
+            // Traverse through next possible transitions using depth-first search (DFS). Note that
+            // initial and post parts are represented as threads with ids `0` and `threads + 1` respectively.
+            next = stack.nextContext(scenario.threads + 1)
+            nextSleep = stack.nextSleep
         }
-        return false
+    }
+
+    private data class SleepingVisitedKey(val key: Any, val sleep: Long)
+
+    /**
+     * Explicit stack for the iterative depth-first search, which stores the contexts
+     * on the current path together with their not yet explored next contexts.
+     * Sleep sets are represented as bit masks of thread ids, thus they are used
+     * only if there are less than 64 threads.
+     */
+    private class SearchStack<STATE>(capacity: Int) {
+        private val contexts = arrayOfNulls<LTSContext<STATE>>(capacity)
+        // The next thread to get next contexts for
+        private val threadIds = IntArray(capacity)
+        private val nextContexts = arrayOfNulls<List<LTSContext<STATE>>>(capacity)
+        private val nextContextIndices = IntArray(capacity)
+        // Threads which should not be executed from the context
+        private val sleeps = LongArray(capacity)
+        // Threads for which all next contexts have been explored
+        private val explored = LongArray(capacity)
+        // The sleep set for the current next contexts
+        private val nextSleeps = LongArray(capacity)
+        private var size = 0
+
+        /**
+         * The sleep set of the context returned by the last [nextContext] invocation.
+         */
+        var nextSleep = 0L
+            private set
+
+        val isEmpty: Boolean get() = size == 0
+
+        fun push(context: LTSContext<STATE>, sleep: Long) {
+            contexts[size] = context
+            threadIds[size] = 0
+            nextContexts[size] = emptyList()
+            nextContextIndices[size] = 0
+            sleeps[size] = sleep
+            explored[size] = 0
+            nextSleeps[size] = 0
+            size++
+        }
+
+        /**
+         * Returns the next not explored context for the top one,
+         * or pops the top context and returns `null` if there is no such context.
+         */
+        fun nextContext(lastThreadId: Int): LTSContext<STATE>? {
+            val top = size - 1
+            while (true) {
+                val next = nextContexts[top]!!
+                if (nextContextIndices[top] < next.size) {
+                    nextSleep = nextSleeps[top]
+                    return next[nextContextIndices[top]++]
+                }
+                if (next.isNotEmpty()) explored[top] = explored[top] or (1L shl threadIds[top] - 1)
+                if (threadIds[top] > lastThreadId) {
+                    contexts[top] = null
+                    nextContexts[top] = null
+                    size--
+                    nextSleep = 0
+                    return null
+                }
+                val context = contexts[top]!!
+                val threadId = threadIds[top]++
+                nextContextIndices[top] = 0
+                if (sleeps[top] and (1L shl threadId) != 0L) {
+                    nextContexts[top] = emptyList() // the thread is sleeping
+                    continue
+                }
+                val contextsForThread = context.nextContexts(threadId)
+                nextContexts[top] = contextsForThread
+                nextSleeps[top] = if (contextsForThread.isNotEmpty() && lastThreadId < 63)
+                    sleepAfter(context, sleeps[top] or explored[top], threadId) else 0
+            }
+        }
+
+        // Returns the threads from [sleep] which next actors commute with the next one in the specified thread
+        private fun sleepAfter(context: LTSContext<STATE>, sleep: Long, threadId: Int): Long {
+            var res = 0L
+            var rest = sleep
+            while (rest != 0L) {
+                val t = java.lang.Long.numberOfTrailingZeros(rest)
+                rest = rest and (rest - 1)
+                if (context.commute(t, threadId)) res = res or (1L shl t)
+            }
+            return res
+        }
+    }
+
+    /**
+     * Forks a sub-task for every next context until [splitDepth] is reached,
+     * and explores the deeper sub-trees via the sequential [verify].
+     */
+    private inner class SearchTask(
+        private val context: LTSContext<STATE>,
+        private val depth: Int,
+        private val splitDepth: Int,
+        private val visited: MutableSet<Any>,
+        private val found: AtomicBoolean
+    ) : RecursiveAction() {
+        override fun compute() {
+            if (depth >= splitDepth) {
+                if (verify(context, visited, found)) found.set(true)
+                return
+            }
+            if (found.get()) return
+            if (context.completed) {
+                found.set(true)
+                return
+            }
+            val key = context.visitedKey
+            if (key != null && !visited.add(key)) return
+            val subtasks = (0..scenario.threads + 1)
+                .flatMap { threadId -> context.nextContexts(threadId) }
+                .map { c -> SearchTask(c, depth + 1, splitDepth, visited, found) }
+            ForkJoinTask.invokeAll(subtasks)
+        }
+    }
+
+    private companion object {
+        // parallelism -> pool, pools are shared between all verifiers
+        private val forkJoinPools = ConcurrentHashMap<Int, ForkJoinPool>()
+
+        private fun forkJoinPool(parallelism: Int): ForkJoinPool =
+            if (parallelism <= 0) ForkJoinPool.commonPool()
+            else forkJoinPools.computeIfAbsent(parallelism) { ForkJoinPool(it) }
     }
 }
 
@@ -67,8 +233,11 @@ interface LTS<STATE> {
  *  Reflects the current path prefix information and stores the current LTS state
  *  (which essentially indicates the data structure state) for a single step of a legal path search
  *  in LTS-based verifiers. It counts next possible transitions via [nextContexts] function.
+ *
+ *  The next contexts should be created via the constructor which takes the previous context,
+ *  so that the number of executed actors in each part is updated incrementally.
  */
-abstract class LTSContext<STATE>(
+abstract class LTSContext<STATE> private constructor(
         /**
          * Current execution scenario.
          */
@@ -81,43 +250,148 @@ abstract class LTSContext<STATE>(
          * Number of executed actors in each thread. Note that initial and post parts
          * are represented as threads with ids `0` and `threads + 1` respectively.
          */
-        val executed: IntArray)
+        val executed: IntArray,
+        private val layout: ScenarioLayout,
+        // The number of executed actors in the init part.
+        val initExecuted: Int,
+        // The number of executed actors in the parallel part.
+        val parallelExecuted: Int,
+        // The number of executed actors in the post part.
+        val postExecuted: Int,
+        // The [executed] vector packed by [ScenarioLayout.pack]
+        private val packedExecuted: Long)
 {
+    private constructor(scenario: ExecutionScenario, state: STATE, executed: IntArray, layout: ScenarioLayout) :
+        this(scenario, state, executed, layout, executed[0], executed.sumInRange(1, scenario.threads),
+            executed[scenario.threads + 1], layout.pack(executed))
+
+    /**
+     * Creates a context with the specified numbers of executed actors.
+     */
+    constructor(scenario: ExecutionScenario, state: STATE, executed: IntArray) :
+        this(scenario, state, executed, ScenarioLayout(scenario))
+
+    /**
+     * Creates the initial context, in which no actor is executed.
+     */
+    constructor(scenario: ExecutionScenario, state: STATE) : this(scenario, state, IntArray(scenario.threads + 2))
+
+    /**
+     * Creates the context which follows [prev] after executing the next actor in the specified thread.
+     */
+    protected constructor(prev: LTSContext<STATE>, state: STATE, threadId: Int) :
+        this(prev.scenario, state, prev.executed.copyOf().also { it[threadId]++ }, prev.layout,
+            if (threadId == 0) prev.initExecuted + 1 else prev.initExecuted,
+            if (threadId in 1..prev.scenario.threads) prev.parallelExecuted + 1 else prev.parallelExecuted,
+            if (threadId == prev.scenario.threads + 1) prev.postExecuted + 1 else prev.postExecuted,
+            prev.layout.increment(prev.packedExecuted, threadId))
+
     /**
      * Counts next possible states and the corresponding contexts if the specified thread is executed.
      */
     abstract fun nextContexts(threadId: Int): List<LTSContext<STATE>>
 
     // The total number of actors in init part of the execution scenario.
-    val initActors: Int = scenario[0].size
-    // The number of executed actors in the init part.
-    val initExecuted: Int = executed[0]
+    val initActors: Int get() = layout.initActors
     // `true` if all actors in the init part are executed.
-    val initCompleted: Boolean = initActors == initExecuted
+    val initCompleted: Boolean get() = layout.initActors == initExecuted
 
     // The total number of actors in parallel part of the execution scenario.
-    val parallelActors: Int = scenario.parallelExecution.fold(0) { sum, t -> sum + t.size }
-    // The number of executed actors in the parallel part.
-    val parallelExecuted: Int = executed.slice(1..scenario.threads).fold(0) { sum, e -> sum + e }
+    val parallelActors: Int get() = layout.parallelActors
     // `true` if all actors in the init part are executed.
-    val parallelCompleted: Boolean = parallelActors == parallelExecuted
+    val parallelCompleted: Boolean get() = layout.parallelActors == parallelExecuted
 
     // The total number of actors in post part of the execution scenario.
-    val postActors: Int = scenario[scenario.threads + 1].size
-    // The number of executed actors in the post part.
-    val postExecuted: Int = executed[scenario.threads + 1]
+    val postActors: Int get() = layout.postActors
     // `true` if all actors in the post part are executed.
-    val postCompleted: Boolean = postActors == postExecuted
+    val postCompleted: Boolean get() = layout.postActors == postExecuted
 
     // The total number of actors in the execution scenario.
-    val totalActors: Int = initActors + parallelActors + postActors
+    val totalActors: Int get() = layout.totalActors
     // The total number of executed actors.
-    val totalExecuted: Int = initExecuted + parallelExecuted + postExecuted
+    val totalExecuted: Int get() = initExecuted + parallelExecuted + postExecuted
     // `true` if all actors are executed and a legal path is found therefore.
-    val completed: Boolean = totalActors == totalExecuted
+    val completed: Boolean get() = totalActors == totalExecuted
 
     // Returns `true` if all actors in the specified thread are executed.
     fun isCompleted(threadId: Int) = executed[threadId] == scenario[threadId].size
+
+    /**
+     * Returns `true` if the next actors in the specified threads can be executed in any order
+     * with the same results and the same resulting state, so that [AbstractLTSVerifier] explores
+     * only one of these orders. Both threads are guaranteed to have not executed actors.
+     * By default, no actors commute.
+     */
+    open fun commute(threadId1: Int, threadId2: Int): Boolean = false
+
+    /**
+     * Identifies this context for memoization in [AbstractLTSVerifier], contexts with equal keys
+     * should lead to the same verification result. By default, the key consists of the LTS state,
+     * which is compared by identity since LTS states are canonical, and the [executed] vector.
+     * Contexts with additional information which affects the next transitions should override
+     * this property and either include this information or return `null` to disable memoization.
+     */
+    open val visitedKey: Any? get() =
+        if (packedExecuted != ScenarioLayout.NOT_PACKED) PackedVisitedKey(state, packedExecuted)
+        else VisitedKey(state, executed)
+
+    private class VisitedKey(val state: Any?, val executed: IntArray) {
+        override fun equals(other: Any?) =
+            other is VisitedKey && state === other.state && executed.contentEquals(other.executed)
+
+        override fun hashCode() = System.identityHashCode(state) * 31 + executed.contentHashCode()
+    }
+
+    private class PackedVisitedKey(val state: Any?, val packedExecuted: Long) {
+        override fun equals(other: Any?) =
+            other is PackedVisitedKey && state === other.state && packedExecuted == other.packedExecuted
+
+        override fun hashCode() = System.identityHashCode(state) * 31 + java.lang.Long.hashCode(packedExecuted)
+    }
+
+    /**
+     * Sizes of the scenario parts, which are counted once per verification, and the layout
+     * of the [executed] vector packed into a single [Long]: every thread takes as many bits
+     * as needed to store the number of its actors. If the whole vector does not fit
+     * into 63 bits, it is not packed and [NOT_PACKED] is used instead.
+     */
+    private class ScenarioLayout(scenario: ExecutionScenario) {
+        val initActors = scenario[0].size
+        val parallelActors = scenario.parallelExecution.sumOf { it.size }
+        val postActors = scenario[scenario.threads + 1].size
+        val totalActors = initActors + parallelActors + postActors
+        private val offsets = IntArray(scenario.threads + 2)
+        private val packed: Boolean
+
+        init {
+            var offset = 0
+            for (threadId in 0..scenario.threads + 1) {
+                offsets[threadId] = offset
+                offset += 32 - Integer.numberOfLeadingZeros(scenario[threadId].size)
+            }
+            packed = offset < 64
+        }
+
+        fun pack(executed: IntArray): Long {
+            if (!packed) return NOT_PACKED
+            var res = 0L
+            for (threadId in executed.indices) res = res or (executed[threadId].toLong() shl offsets[threadId])
+            return res
+        }
+
+        fun increment(packedExecuted: Long, threadId: Int): Long =
+            if (packed) packedExecuted + (1L shl offsets[threadId]) else NOT_PACKED
+
+        companion object {
+            const val NOT_PACKED = -1L
+        }
+    }
+}
+
+private fun IntArray.sumInRange(from: Int, to: Int): Int {
+    var sum = 0
+    for (i in from..to) sum += this[i]
+    return sum
 }
 
 
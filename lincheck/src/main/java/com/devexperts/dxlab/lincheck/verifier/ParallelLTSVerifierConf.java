@@ -0,0 +1,40 @@
+/*
+ * Lincheck - Linearizability checker
+ *
+ * Copyright (C) 2015-2022 Devexperts, LLC
+ * Copyright (C) 2023 Devexperts Ireland Limited
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed with this file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.devexperts.dxlab.lincheck.verifier;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * This annotation enables the parallel path search in LTS-based verifiers
+ * (see {@link AbstractLTSVerifier}) and is optional. It is useful for scenarios
+ * with many threads, where the verification of one result takes a long time.
+ * <p>
+ * Note, that the sequential implementation is invoked from several threads
+ * in this case, but every invocation uses its own instance.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface ParallelLTSVerifierConf {
+    /**
+     * The number of threads in the fork/join pool,
+     * {@code 0} means the common pool.
+     */
+    int parallelism() default 0;
+
+    /**
+     * The search forks a task for every next context until this depth,
+     * deeper sub-trees are explored sequentially.
+     */
+    int splitDepth() default 4;
+}
@@ -13,7 +13,12 @@ package com.devexperts.dxlab.lincheck.verifier
 import com.devexperts.dxlab.lincheck.Actor
 import com.devexperts.dxlab.lincheck.Result
 import com.devexperts.dxlab.lincheck.Utils
-import java.util.*
+import java.lang.reflect.Method
+import java.lang.ref.SoftReference
+import java.lang.reflect.Modifier
+import java.util.WeakHashMap
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicInteger
 
 
 /**
@@ -31,36 +36,104 @@ import java.util.*
  *
  * In order to perform sequential executions, [seqImplClass] should be
  * provided and has an empty constructor which creates the initial state
- * of the testing data structure.
+ * of the testing data structure. If [seqImplClass] has a public no-argument
+ * `copy()` method, which should return a deep copy of the instance,
+ * the next states are computed by copying the previous ones; otherwise,
+ * all the actors from the initial state are re-executed on a new instance.
+ * Note that `clone()` is not used since it returns a shallow copy by default.
+ *
+ * The LTS does not depend on the execution scenario, thus it is shared
+ * between all verifiers of the same class (see [forClass]) and is thread-safe.
  */
 class RegularLTS(val seqImplClass: Class<*>) : LTS<RegularLTS.State> {
-    override val initialState = State(emptyArray())
+    // `copy()` method if present, see the class description
+    private val copyMethod: Method? = findCopyMethod(seqImplClass)
+    override val initialState = State(emptyArray(), if (copyMethod != null) newSeqImpl() else null)
     // seqImpl -> State
-    private val states: MutableMap<Any, State> = mutableMapOf()
+    private val states: MutableMap<Any, State> = ConcurrentHashMap()
+    private val transitionsCount = AtomicInteger()
+
+    /**
+     * The number of constructed states.
+     */
+    val size: Int get() = states.size
 
-    inner class State(private val actorsToCreate: Array<Actor>) {
-        private val transitions: MutableMap<Actor, ResultWithNextState> = HashMap()
+    /**
+     * The number of constructed transitions.
+     */
+    val transitions: Int get() = transitionsCount.get()
+
+    /**
+     * Either [seqImpl] is used to create copies of this state if [copyMethod] is present,
+     * or [actorsToCreate] are executed on a new instance otherwise.
+     */
+    inner class State(private val actorsToCreate: Array<Actor>, private val seqImpl: Any?) {
+        private val transitions: MutableMap<Actor, ResultWithNextState> = ConcurrentHashMap()
 
         fun next(actor: Actor, result: Result): State? {
-            val resultWithNextState = transitions.computeIfAbsent(actor) {
-                val newSeqImpl = copySeqImpl()
-                val res = Utils.executeActor(newSeqImpl, actor)
-                val actors = actorsToCreate + actor
-                ResultWithNextState(res, getOrCreateState(newSeqImpl, actors))
-            }
+            val resultWithNextState = transition(actor)
             return if (resultWithNextState.result == result) resultWithNextState.state else null
         }
 
+        /**
+         * Returns `true` if the specified actor does not change this state.
+         */
+        fun isPreservedBy(actor: Actor): Boolean = transition(actor).state === this
+
+        private fun transition(actor: Actor): ResultWithNextState = transitions.computeIfAbsent(actor) {
+            val newSeqImpl = copySeqImpl()
+            val res = Utils.executeActor(newSeqImpl, actor)
+            val actors = if (copyMethod != null) actorsToCreate else actorsToCreate + actor
+            transitionsCount.incrementAndGet()
+            ResultWithNextState(res, getOrCreateState(newSeqImpl, actors))
+        }
+
         private fun copySeqImpl(): Any {
-            val newSeqImpl = seqImplClass.newInstance()
+            if (copyMethod != null) return copyMethod.invoke(seqImpl)
+            val newSeqImpl = newSeqImpl()
             actorsToCreate.forEach { actor -> Utils.executeActor(newSeqImpl, actor) }
             return newSeqImpl
         }
     }
 
     private fun getOrCreateState(seqImpl: Any, actorsToCreate: Array<Actor>): State {
-        return states.computeIfAbsent(seqImpl) { State(actorsToCreate) }
+        // The instance is not modified after that, it is copied for the next states instead
+        return states.computeIfAbsent(seqImpl) { State(actorsToCreate, if (copyMethod != null) seqImpl else null) }
     }
 
+    private fun newSeqImpl(): Any = seqImplClass.getDeclaredConstructor().newInstance()
+
     private class ResultWithNextState(val result: Result, val state: State)
+
+    companion object {
+        private fun findCopyMethod(seqImplClass: Class<*>): Method? {
+            val copy = seqImplClass.methods.find { it.name == "copy" && it.parameterCount == 0 }
+            return copy?.takeIf {
+                !Modifier.isStatic(it.modifiers) &&
+                    (seqImplClass.isAssignableFrom(it.returnType) || it.returnType.isAssignableFrom(seqImplClass))
+            }
+        }
+
+        /**
+         * The maximal numbers of states and transitions in the shared LTS, a new one
+         * is created for the next verifiers when any of them is exceeded.
+         */
+        const val MAX_SHARED_STATES = 100_000
+        const val MAX_SHARED_TRANSITIONS = 1_000_000
+
+        // The classes are referenced weakly, and the LTSs softly since they reference their classes;
+        // thus, a class is not pinned for the JVM lifetime and can be unloaded once its LTS is freed
+        private val sharedLTS = WeakHashMap<Class<*>, SoftReference<RegularLTS>>()
+
+        /**
+         * Returns the LTS for the specified class, which is shared between all verifiers and iterations.
+         */
+        @JvmStatic
+        fun forClass(seqImplClass: Class<*>): RegularLTS = synchronized(sharedLTS) {
+            val lts = sharedLTS[seqImplClass]?.get()
+            if (lts != null && lts.size <= MAX_SHARED_STATES && lts.transitions <= MAX_SHARED_TRANSITIONS)
+                return lts
+            RegularLTS(seqImplClass).also { sharedLTS[seqImplClass] = SoftReference(it) }
+        }
+    }
 }
@@ -10,6 +10,7 @@
 
 package com.devexperts.dxlab.lincheck.verifier.linearizability
 
+import com.devexperts.dxlab.lincheck.annotations.Operation
 import com.devexperts.dxlab.lincheck.execution.ExecutionResult
 import com.devexperts.dxlab.lincheck.execution.ExecutionScenario
 import com.devexperts.dxlab.lincheck.verifier.*
@@ -19,13 +20,23 @@ import com.devexperts.dxlab.lincheck.verifier.*
  * for what it tries to find a possible linear execution which transitions does not violate both
  * regular LTS (see [LTS] and [RegularLTS]) transitions and the happens-before order. Essentially,
  * it just tries to execute the next actor in each thread and goes deeper until all actors are executed.
+ * If the real-time order of the actors is known (see [ExecutionResult.getParallelHBClocks]), an actor
+ * is not executed until all the actors which have completed before it started are executed.
+ * The orders of read-only actors (see [Operation.readOnly]) and of actors which do not change
+ * the current state are not distinguished, see [LTSContext.commute].
  *
  * This verifier is based on [AbstractLTSVerifier] and caches the already processed results
  * for performance improvement (see [CachedVerifier]).
  */
 class LinearizabilityVerifier(scenario: ExecutionScenario, testClass : Class<*>) : AbstractLTSVerifier<RegularLTS.State>(scenario, testClass) {
+    // The LTS is shared between all verifiers for the test class, see RegularLTS.forClass
+    private val lts = RegularLTS.forClass(testClass)
+
     override fun createInitialContext(results: ExecutionResult): LTSContext<RegularLTS.State>
-            = LinearizabilityContext(scenario, RegularLTS(testClass).initialState, results)
+            = LinearizabilityContext(scenario, lts.initialState, results)
+
+    // The real-time order restricts possible paths
+    override fun usesHBClocks() = true
 }
 
 /**
@@ -33,14 +44,16 @@ class LinearizabilityVerifier(scenario: ExecutionScenario, testClass : Class<*>)
  *
  * Current state of scenario execution is represented with the number of actors executed in every thread
  */
-private class LinearizabilityContext(scenario: ExecutionScenario,
-                                     state: RegularLTS.State,
-                                     executed: IntArray,
-                                     val results: ExecutionResult
-) : LTSContext<RegularLTS.State>(scenario, state, executed) {
+private class LinearizabilityContext : LTSContext<RegularLTS.State> {
+    val results: ExecutionResult
 
-    constructor(scenario: ExecutionScenario, state: RegularLTS.State, results: ExecutionResult)
-            : this(scenario, state, IntArray(scenario.threads + 2), results)
+    constructor(scenario: ExecutionScenario, state: RegularLTS.State, results: ExecutionResult) : super(scenario, state) {
+        this.results = results
+    }
+
+    constructor(prev: LinearizabilityContext, state: RegularLTS.State, threadId: Int) : super(prev, state, threadId) {
+        this.results = prev.results
+    }
 
     override fun nextContexts(threadId: Int): List<LinearizabilityContext> {
         // Check if there are unprocessed actors in the specified thread
@@ -51,7 +64,7 @@ private class LinearizabilityContext(scenario: ExecutionScenario,
         // all actors from post part should be executed at last.
         val legal = when (threadId) {
             0 -> true // INIT: we already checked that there is an unprocessed actor
-            in 1 .. scenario.threads -> initCompleted // PARALLEL
+            in 1 .. scenario.threads -> initCompleted && isHBCompleted(threadId) // PARALLEL
             else -> initCompleted && parallelCompleted // POST
         }
         if (!legal) return emptyList()
@@ -59,8 +72,24 @@ private class LinearizabilityContext(scenario: ExecutionScenario,
         val i = executed[threadId]
         val nextState = state.next(scenario[threadId][i], results[threadId][i]) ?: return emptyList()
         // The transition is possible, create a new context
-        val nextExecuted = executed.copyOf()
-        nextExecuted[threadId]++
-        return listOf(LinearizabilityContext(scenario, nextState, nextExecuted, results))
+        return listOf(LinearizabilityContext(this, nextState, threadId))
+    }
+
+    // Returns `true` if all the actors which have completed before the next
+    // actor in the specified thread started are already executed.
+    private fun isHBCompleted(threadId: Int): Boolean {
+        val clocks = results.parallelHBClocks ?: return true
+        val clock = clocks[threadId - 1][executed[threadId]]
+        for (t in clock.indices) {
+            if (executed[t + 1] < clock[t]) return false
+        }
+        return true
+    }
+
+    override fun commute(threadId1: Int, threadId2: Int): Boolean {
+        val actor1 = scenario[threadId1][executed[threadId1]]
+        val actor2 = scenario[threadId2][executed[threadId2]]
+        // Either both actors are declared as read-only, or both of them do not change the current state
+        return actor1.isReadOnly && actor2.isReadOnly || state.isPreservedBy(actor1) && state.isPreservedBy(actor2)
     }
 }
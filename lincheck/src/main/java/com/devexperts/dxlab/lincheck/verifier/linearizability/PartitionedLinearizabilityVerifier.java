@@ -0,0 +1,217 @@
+/*
+ * Lincheck - Linearizability checker
+ *
+ * Copyright (C) 2015-2022 Devexperts, LLC
+ * Copyright (C) 2023 Devexperts Ireland Limited
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed with this file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.devexperts.dxlab.lincheck.verifier.linearizability;
+
+import com.devexperts.dxlab.lincheck.Actor;
+import com.devexperts.dxlab.lincheck.execution.ExecutionResult;
+import com.devexperts.dxlab.lincheck.execution.ExecutionScenario;
+import com.devexperts.dxlab.lincheck.verifier.CachedVerifier;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * This verifier checks linearizability of partitionable data structures, like maps or sets,
+ * where operations with different keys do not affect each other. The keys are specified
+ * via {@link PartitionKey} annotation on the operation parameters. The execution is split into
+ * sub-executions with the same key, which are checked by {@link LinearizabilityVerifier}
+ * independently and in parallel. As a result, the number of explored interleavings is
+ * the sum of the ones for the sub-executions instead of their product.
+ * <p>
+ * If some operation in the scenario has no partition key, the whole execution is checked at once.
+ * Note, that every sub-execution starts from the initial state of the test instance, thus it
+ * should not contain elements with different keys.
+ */
+public class PartitionedLinearizabilityVerifier extends CachedVerifier {
+    private final List<Partition> partitions;
+
+    public PartitionedLinearizabilityVerifier(ExecutionScenario scenario, Class<?> testClass) {
+        super(testClass);
+        Map<Object, Partition> partitionsByKey = partitionByKeys(scenario);
+        if (partitionsByKey == null) { // cannot be partitioned, check the whole execution
+            partitionsByKey = new LinkedHashMap<>();
+            Partition partition = new Partition(scenario.parallelExecution.size());
+            addAll(partition.init, scenario.initExecution);
+            for (int t = 0; t < scenario.parallelExecution.size(); t++)
+                addAll(partition.parallel.get(t), scenario.parallelExecution.get(t));
+            addAll(partition.post, scenario.postExecution);
+            partitionsByKey.put(null, partition);
+        }
+        this.partitions = new ArrayList<>(partitionsByKey.values());
+        for (Partition partition : partitions)
+            partition.init(scenario, testClass);
+    }
+
+    /**
+     * Returns the partitions of the scenario actors by their keys,
+     * or {@code null} if some actor has no partition key.
+     */
+    private static Map<Object, Partition> partitionByKeys(ExecutionScenario scenario) {
+        int nThreads = scenario.parallelExecution.size();
+        Map<Object, Partition> partitions = new LinkedHashMap<>();
+        for (int i = 0; i < scenario.initExecution.size(); i++) {
+            Partition partition = partitionFor(partitions, scenario.initExecution.get(i), nThreads);
+            if (partition == null)
+                return null;
+            partition.init.add(i);
+        }
+        for (int t = 0; t < nThreads; t++) {
+            List<Actor> actors = scenario.parallelExecution.get(t);
+            for (int i = 0; i < actors.size(); i++) {
+                Partition partition = partitionFor(partitions, actors.get(i), nThreads);
+                if (partition == null)
+                    return null;
+                partition.parallel.get(t).add(i);
+            }
+        }
+        for (int i = 0; i < scenario.postExecution.size(); i++) {
+            Partition partition = partitionFor(partitions, scenario.postExecution.get(i), nThreads);
+            if (partition == null)
+                return null;
+            partition.post.add(i);
+        }
+        return partitions;
+    }
+
+    private static Partition partitionFor(Map<Object, Partition> partitions, Actor actor, int nThreads) {
+        int keyIndex = partitionKeyIndex(actor.method);
+        if (keyIndex < 0)
+            return null;
+        return partitions.computeIfAbsent(new Key(actor.arguments[keyIndex]), k -> new Partition(nThreads));
+    }
+
+    private static int partitionKeyIndex(Method method) {
+        Annotation[][] paramAnnotations = method.getParameterAnnotations();
+        for (int i = 0; i < paramAnnotations.length; i++) {
+            for (Annotation ann : paramAnnotations[i]) {
+                if (ann instanceof PartitionKey)
+                    return i;
+            }
+        }
+        return -1;
+    }
+
+    private static void addAll(List<Integer> indices, List<?> actors) {
+        for (int i = 0; i < actors.size(); i++)
+            indices.add(i);
+    }
+
+    @Override
+    public boolean verifyResultsImpl(ExecutionResult results) {
+        if (partitions.size() == 1)
+            return partitions.get(0).verify(results);
+        return partitions.parallelStream().allMatch(partition -> partition.verify(results));
+    }
+
+    @Override
+    protected boolean usesHBClocks() {
+        return true;
+    }
+
+    /**
+     * Partition key wrapper, {@code null} is a valid key.
+     */
+    private static class Key {
+        private final Object key;
+
+        Key(Object key) {
+            this.key = key;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && Objects.equals(key, ((Key) o).key);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(key);
+        }
+    }
+
+    /**
+     * Indices of the actors with the same key in each part of the scenario
+     * and the verifier for the corresponding sub-execution.
+     */
+    private static class Partition {
+        final List<Integer> init = new ArrayList<>();
+        final List<List<Integer>> parallel = new ArrayList<>();
+        final List<Integer> post = new ArrayList<>();
+        // prefixSizes[t][n] is the number of actors from this partition among the first n ones in thread t
+        int[][] prefixSizes;
+        LinearizabilityVerifier verifier;
+
+        Partition(int nThreads) {
+            for (int t = 0; t < nThreads; t++)
+                parallel.add(new ArrayList<>());
+        }
+
+        void init(ExecutionScenario scenario, Class<?> testClass) {
+            ExecutionScenario subScenario = new ExecutionScenario(select(scenario.initExecution, init),
+                selectParallel(scenario.parallelExecution), select(scenario.postExecution, post));
+            verifier = new LinearizabilityVerifier(subScenario, testClass);
+            int nThreads = parallel.size();
+            prefixSizes = new int[nThreads][];
+            for (int t = 0; t < nThreads; t++) {
+                int nActors = scenario.parallelExecution.get(t).size();
+                prefixSizes[t] = new int[nActors + 1];
+                for (int i : parallel.get(t))
+                    prefixSizes[t][i + 1] = 1;
+                for (int n = 1; n <= nActors; n++)
+                    prefixSizes[t][n] += prefixSizes[t][n - 1];
+            }
+        }
+
+        boolean verify(ExecutionResult results) {
+            ExecutionResult subResults = new ExecutionResult(select(results.initResults, init),
+                selectParallel(results.parallelResults), select(results.postResults, post),
+                selectHBClocks(results.getParallelHBClocks()));
+            return verifier.verifyResults(subResults);
+        }
+
+        private <T> List<List<T>> selectParallel(List<List<T>> parallelPart) {
+            List<List<T>> res = new ArrayList<>(parallel.size());
+            for (int t = 0; t < parallel.size(); t++)
+                res.add(select(parallelPart.get(t), parallel.get(t)));
+            return res;
+        }
+
+        // Happens-before clocks count actors from this partition only
+        private int[][][] selectHBClocks(int[][][] clocks) {
+            if (clocks == null)
+                return null;
+            int nThreads = parallel.size();
+            int[][][] res = new int[nThreads][][];
+            for (int t = 0; t < nThreads; t++) {
+                List<Integer> indices = parallel.get(t);
+                res[t] = new int[indices.size()][nThreads];
+                for (int k = 0; k < indices.size(); k++) {
+                    int[] clock = clocks[t][indices.get(k)];
+                    for (int t2 = 0; t2 < nThreads; t2++)
+                        res[t][k][t2] = prefixSizes[t2][clock[t2]];
+                }
+            }
+            return res;
+        }
+
+        private static <T> List<T> select(List<T> list, List<Integer> indices) {
+            List<T> res = new ArrayList<>(indices.size());
+            for (int i : indices)
+                res.add(list.get(i));
+            return res;
+        }
+    }
+}
@@ -15,6 +15,7 @@ import com.devexperts.dxlab.lincheck.verifier.LTS
 import com.devexperts.dxlab.lincheck.verifier.RegularLTS
 import com.devexperts.dxlab.lincheck.verifier.quantitative.ExtendedLTS.State
 import java.lang.reflect.Method
+import java.util.concurrent.ConcurrentHashMap
 
 /**
  * This LTS is based on the presented in the "Quantitative relaxation of concurrent data structures"
@@ -31,13 +32,13 @@ import java.lang.reflect.Method
  */
 class ExtendedLTS(private val costCounterClass: Class<*>, relaxationFactor: Int) : LTS<ExtendedLTS.State> {
     // costCounter -> State
-    private val states: MutableMap<Any, State> = HashMap()
+    private val states: MutableMap<Any, State> = ConcurrentHashMap()
 
     override val initialState = getStateForCostCounter(costCounterClass.getConstructor(Int::class.java).newInstance(relaxationFactor))
 
     inner class State(private val costCounter: Any) {
         // [actor, result] -> List<CostWithNextCostCounter> | nextCostCounter | NULL (for null)
-        private val transitions: MutableMap<ActorWithResult, Any> = HashMap()
+        private val transitions: MutableMap<ActorWithResult, Any> = ConcurrentHashMap()
 
 
         fun nextRegular(actor: Actor, result: Result): State? {
@@ -71,7 +72,7 @@ class ExtendedLTS(private val costCounterClass: Class<*>, relaxationFactor: Int)
     private data class ActorWithResult(val actor: Actor, val result: Result)
 
     // test class method -> cost counter method
-    private val methodsMapping: MutableMap<Method, Method> = HashMap()
+    private val methodsMapping: MutableMap<Method, Method> = ConcurrentHashMap()
 
     private fun getCostCounterMethod(testClassMethod: Method): Method {
         return methodsMapping.computeIfAbsent(testClassMethod) {
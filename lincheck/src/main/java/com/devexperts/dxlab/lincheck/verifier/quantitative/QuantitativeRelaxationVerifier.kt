@@ -39,16 +39,23 @@ class QuantitativeRelaxationVerifier(scenario: ExecutionScenario, testClass: Cla
     override fun createInitialContext(results: ExecutionResult): LTSContext<ExtendedLTS.State> =
             QuantitativeRelaxationContext(scenario, lts.initialState, results)
 
-    private inner class QuantitativeRelaxationContext(
-            scenario: ExecutionScenario,
-            state: ExtendedLTS.State,
-            executed: IntArray,
-            val results: ExecutionResult,
-            val iterativePathCostFunctionCounter: IterativePathCostFunctionCounter
-    ) : LTSContext<ExtendedLTS.State>(scenario, state, executed) {
+    private inner class QuantitativeRelaxationContext : LTSContext<ExtendedLTS.State> {
+        val results: ExecutionResult
+        val iterativePathCostFunctionCounter: IterativePathCostFunctionCounter
 
-        constructor(scenario: ExecutionScenario, state: ExtendedLTS.State, results: ExecutionResult) :
-                this(scenario, state, IntArray(scenario.threads + 2), results, pathCostFunc.createIterativePathCostFunctionCounter(relaxationFactor))
+        constructor(scenario: ExecutionScenario, state: ExtendedLTS.State, results: ExecutionResult) : super(scenario, state) {
+            this.results = results
+            this.iterativePathCostFunctionCounter = pathCostFunc.createIterativePathCostFunctionCounter(relaxationFactor)
+        }
+
+        constructor(prev: QuantitativeRelaxationContext, state: ExtendedLTS.State, threadId: Int,
+                    iterativePathCostFunctionCounter: IterativePathCostFunctionCounter) : super(prev, state, threadId) {
+            this.results = prev.results
+            this.iterativePathCostFunctionCounter = iterativePathCostFunctionCounter
+        }
+
+        // The path cost function counter affects the next transitions and is not comparable
+        override val visitedKey: Any? get() = null
 
         override fun nextContexts(threadId: Int): List<QuantitativeRelaxationContext> {
             // Check if there are unprocessed actors in the specified thread
@@ -84,9 +91,7 @@ class QuantitativeRelaxationVerifier(scenario: ExecutionScenario, testClass: Cla
         }
 
         private fun nextContext(threadId: Int, nextState: ExtendedLTS.State, nextIterativePathCostFuncCounter: IterativePathCostFunctionCounter): QuantitativeRelaxationContext {
-            val nextExecuted = executed.copyOf()
-            nextExecuted[threadId]++
-            return QuantitativeRelaxationContext(scenario, nextState, nextExecuted, results, nextIterativePathCostFuncCounter)
+            return QuantitativeRelaxationContext(this, nextState, threadId, nextIterativePathCostFuncCounter)
         }
 
         private val Actor.isRelaxed get() = method.isAnnotationPresent(QuantitativeRelaxed::class.java)
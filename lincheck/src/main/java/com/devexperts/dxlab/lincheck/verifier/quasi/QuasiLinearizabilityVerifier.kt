@@ -13,21 +13,38 @@ package com.devexperts.dxlab.lincheck.verifier.quasi
 import com.devexperts.dxlab.lincheck.execution.ExecutionResult
 import com.devexperts.dxlab.lincheck.execution.ExecutionScenario
 import com.devexperts.dxlab.lincheck.verifier.*
-import com.devexperts.dxlab.lincheck.verifier.LTS.*
-import kotlin.math.abs
-import kotlin.math.min
 
 /**
  * This verifier checks that the specified results could happen in quasi-linearizable execution.
- * In order to do this it lazily constructs an execution graph using QuasiLinearizabilityContext
+ * In order to do this it lazily constructs an execution graph using [QuasiLinearizabilityContext].
+ * The sequential specification is provided via [QuasiLinearizabilityVerifierConf.sequentialImplementation],
+ * its [RegularLTS] is shared between all verifiers for this class (see [RegularLTS.forClass]).
  */
 class QuasiLinearizabilityVerifier(scenario: ExecutionScenario, testClass: Class<*>) : AbstractLTSVerifier<RegularLTS.State>(scenario, testClass) {
-    private val quasiFactor = testClass.getAnnotation(QuasiLinearizabilityVerifierConf::class.java).factor
+    private val quasiFactor: Int
+    private val lts: RegularLTS
+
+    init {
+        val conf = testClass.getAnnotation(QuasiLinearizabilityVerifierConf::class.java)
+        requireNotNull(conf) { "No configuration for QuasiLinearizabilityVerifier found" }
+        require(conf.factor in 0..MAX_FACTOR) { "Quasi factor should be in 0..$MAX_FACTOR: ${conf.factor}" }
+        quasiFactor = conf.factor
+        lts = RegularLTS.forClass(conf.sequentialImplementation.java)
+    }
 
     /**
      * Returns initial QuasiLinearizabilityContext
      */
-    override fun createInitialContext(results: ExecutionResult): LTSContext<RegularLTS.State> = TODO()
+    override fun createInitialContext(results: ExecutionResult): LTSContext<RegularLTS.State> =
+        QuasiLinearizabilityContext(scenario, lts.initialState, results, quasiFactor)
+
+    companion object {
+        /**
+         * The maximal supported quasi factor, executed actors within the relaxation
+         * window of every thread (`2 * factor + 1` actors) are stored as a bit mask.
+         */
+        const val MAX_FACTOR = 31
+    }
 }
 
 /**
@@ -37,178 +54,105 @@ class QuasiLinearizabilityVerifier(scenario: ExecutionScenario, testClass: Class
  * International Conference on Principles of Distributed Systems. Springer, Berlin, Heidelberg, 2010.
  *
  * Next possible states are determined lazily by trying to execute not only actor that is next in order for a given thread
- * but also actors located within quasi-factor in execution scenario for this thread
+ * but also actors located within quasi-factor in execution scenario for this thread. Every actor has a non-relaxed
+ * position in the execution: its index for the init part, the number of init part actors plus its index for the parallel
+ * part, and the number of init and parallel part actors plus its index for the post part. The current position for
+ * the init and post part actors is the total number of executed actors, while for the parallel part ones it counts
+ * only the executed actors from the init and post parts and from the same thread, since the parallel threads
+ * are not ordered between each other. An actor can be executed if its non-relaxed position differs from the current
+ * one by at most quasi-factor, and the lateness of a skipped actor (the current position minus its non-relaxed one)
+ * should never exceed quasi-factor; thus, an actor with the maximal lateness should be executed before the position
+ * is moved further.
  *
- * Current state of scenario execution is represented by information for every thread about executed actors and
- * those actors that will be executed out-of-order and skipped at the moment
+ * Current state of scenario execution is represented for every thread by the index of the first not executed actor
+ * and the bit mask of executed actors after it. The latenesses of the skipped actors are determined by the numbers of
+ * executed actors, so that they are not stored, and these actors can be only within `2 * quasiFactor` after the first
+ * not executed one.
  */
-//private class QuasiLinearizabilityContext(scenario: ExecutionScenario, val results: ExecutionResult, val quasiFactor: Int) :
-//        LTSContext<RegularLTS.State>(scenario) {
-//
-//    /**
-//     * Represents position of an actor in execution scenario
-//     */
-//    data class ExecutionStep(val threadId: Int, val actorIndex: Int)
-//
-//    /**
-//     * The set of executed actors' indices for every thread
-//     */
-//    private var executedActors = Array(scenario.threads + 2) { mutableSetOf<Int>() }
-//    /**
-//     * Indices of the last executed actors for every thread
-//     */
-//    private var last = IntArray(scenario.threads + 2) { -1 }
-//    /**
-//     * Latenesses of skipped actors for every thread
-//     */
-//    private var skipped = Array(scenario.threads + 2) { mutableMapOf<Int, Int>() }
-//
-//    private fun nextContext(actor: ExecutionStep): QuasiLinearizabilityContext {
-//        val threadId = actor.threadId
-//        val actorIndex = actor.actorIndex
-//        val next = copy()
-//        next.executed[threadId]++
-//        next.executedActors[threadId].add(actorIndex)
-//        next.last[threadId] = actorIndex
-//        // update skipped actors
-//        if (actorIndex < last[threadId]) {
-//            // previously skipped actor was executed, so we can remove it from skipped actors
-//            next.skipped[threadId].remove(actorIndex)
-//        } else {
-//            // the following actor or some actor from the future was executed out-of-order
-//            for (skippedActorId in last[threadId] + 1 until actorIndex) {
-//                // if an actor was executed out-of-order skipping some actors located after the last executed actor, than all these actors should be added to skipped
-//                // actual latenesses for these actors are counted below
-//                next.skipped[threadId][skippedActorId] = 0
-//            }
-//        }
-//        // now update latenesses of skipped actors
-//        // update latenesses according to the global position of execution
-//        val globalPos = executedInRange(0, scenario.threads + 1)
-//        val it = next.skipped[threadId].keys.iterator()
-//        while (it.hasNext()) {
-//            val skippedActorId = it.next()
-//            val nonRelaxedPos = getNonRelaxedActorPosition(threadId, skippedActorId)
-//            // latenesses are only counted for actors that are behind the current global position of execution
-//            // others can still be executed in order and are not late now
-//            if (nonRelaxedPos < globalPos) {
-//                next.skipped[threadId][skippedActorId] = getGlobalLateness(threadId, nonRelaxedPos)
-//            }
-//        }
-//        if (threadId == scenario.threads + 1) {
-//            // post part actor executed
-//            // in every thread the number of skipped actors equals the number of actors executed in post part
-//            // latenesses of all these parallel part actors should be incremented
-//            for (t in 1..scenario.threads) {
-//                next.incThreadLatenesses(t, min(executedActors[scenario.threads + 1].size, scenario[t].size))
-//            }
-//        }
-//
-//        if (threadId in 1..scenario.threads + 1) {
-//            // actor from non-initial part is executed
-//            // in initial thread the number of skipped actors equals the number of actors executed in parallel post parts
-//            // latenesses of all these initial part actors should be incremented
-//            next.incThreadLatenesses(0, min(executedInRange(1, scenario.threads + 1), scenario[0].size))
-//        }
-//        return next
-//    }
-//
-//    override fun nextContexts(threadId: Int): List<StateWithContext> {
-//        val legalTransitions = mutableListOf<StateWithContext>()
-//        for (e in skipped[0]) {
-//            if (e.value == quasiFactor) {
-//                val actor = ExecutionStep(0, e.key)
-//                // initial part actor has maximal lateness -> it is the only one to executed
-//                state.isTransitionLegal(actor)?.let { return listOf(StateWithContext(it, nextContext(actor))) }
-//            }
-//        }
-//        // jump forward
-//        for (jump in 1..quasiFactor + 1) {
-//            // thread local position of a potential actor to be executed
-//            val localPos = last[threadId] + jump
-//            // check whether this actor is located within quasi-factor distance from its non-relaxed position of execution
-//            val nonRelaxedPos = getNonRelaxedActorPosition(threadId, localPos)
-//            val lateness = getGlobalLateness(threadId, nonRelaxedPos)
-//            if (lateness <= quasiFactor && localPos < scenario[threadId].size) {
-//                if (!executedActors[threadId].contains(localPos)) {
-//                    val actor = ExecutionStep(threadId, localPos)
-//                    state.isTransitionLegal(actor)?.let {
-//                        val nextContext = nextContext(actor)
-//                        legalTransitions.add(StateWithContext(it, nextContext))
-//                    }
-//                }
-//            }
-//        }
-//        // try to execute skipped actors
-//        for (e in skipped[threadId]) {
-//            val actor = ExecutionStep(threadId, e.key)
-//            val nextContext = nextContext(actor)
-//            state.isTransitionLegal(actor)?.let {
-//                if (e.value == quasiFactor) {
-//                    // this skipped actor has maximal lateness -> it is the only one to be executed
-//                    return listOf(StateWithContext(it, nextContext))
-//                }
-//                legalTransitions.add(StateWithContext(it, nextContext))
-//            }
-//        }
-//        return legalTransitions
-//    }
-//
-//    private fun getNonRelaxedActorPosition(threadId: Int, localPos: Int) =
-//        when (threadId) {
-//            // non-relaxed position of an initial part actor = localPos
-//            0 -> localPos
-//            // non-relaxed position of a parallel part actor = (all initial part actors) + localPos
-//            in 1..scenario.threads -> (scenario[0].size + localPos)
-//            // non-relaxed position of a post part actor = (all initial and parallel part actors) + localPos
-//            else -> initialAndParallelActors + localPos
-//        }
-//
-//    private fun getGlobalLateness(threadId: Int, nonRelaxedActorPos: Int): Int {
-//        // lateness = |[global position of execution] - [non-relaxed position of the actor]|
-//        val globalPos = executedInRange(0, scenario.threads + 1)
-//        return when (threadId) {
-//            // global position for initial and post part actors = executed actors from all parts
-//            0, scenario.threads + 1 -> abs(globalPos - nonRelaxedActorPos)
-//            // global position for parallel part actors = all initial and post part actors and actors executed in specified thread of parallel part
-//            else -> {
-//                val parallelGlobalPos = executed[0] + executed[threadId] + executed[scenario.threads + 1]
-//                abs(parallelGlobalPos - nonRelaxedActorPos)
-//            }
-//        }
-//    }
-//
-//
-//    private fun incThreadLatenesses(threadId: Int, lastSkippedActor: Int) {
-//        for (actorId in 0 until lastSkippedActor) {
-//            if (!executedActors[threadId].contains(actorId)) {
-//                skipped[threadId].putIfAbsent(actorId, 0)
-//                skipped[threadId][actorId]!!.inc()
-//            }
-//        }
-//    }
-//
-//    private fun copy(): QuasiLinearizabilityContext {
-//        val next = QuasiLinearizabilityContext(scenario, results, lts, quasiFactor)
-//        next.executed = executed.copyOf()
-//        next.last = last.copyOf()
-//        for (i in 0..scenario.threads + 1) {
-//            next.executedActors[i].clear()
-//            next.executedActors[i].addAll(executedActors[i])
-//            next.skipped[i].clear()
-//            next.skipped[i].putAll(skipped[i])
-//        }
-//        return next
-//    }
-//
-//    private fun State.isTransitionLegal(es: ExecutionStep): State? {
-//        this as RegularLTS.State
-//        val actor = scenario[es.threadId][es.actorIndex]
-//        val result = results[es.threadId][es.actorIndex]
-//        val nextResState = next(actor)
-//        if (nextResState.result == result) {
-//            return nextResState.state
-//        }
-//        return null
-//    }
-//}
+private class QuasiLinearizabilityContext : LTSContext<RegularLTS.State> {
+    val results: ExecutionResult
+    val quasiFactor: Int
+    /**
+     * Indices of the first not executed actors for every thread
+     */
+    private val firstNotExecuted: IntArray
+    /**
+     * Executed actors after the first not executed one for every thread,
+     * the i-th bit corresponds to the actor with index `firstNotExecuted + i`
+     */
+    private val executedMasks: LongArray
+
+    constructor(scenario: ExecutionScenario, state: RegularLTS.State, results: ExecutionResult, quasiFactor: Int) : super(scenario, state) {
+        this.results = results
+        this.quasiFactor = quasiFactor
+        this.firstNotExecuted = IntArray(scenario.threads + 2)
+        this.executedMasks = LongArray(scenario.threads + 2)
+    }
+
+    constructor(prev: QuasiLinearizabilityContext, state: RegularLTS.State, threadId: Int, actorIndex: Int) : super(prev, state, threadId) {
+        this.results = prev.results
+        this.quasiFactor = prev.quasiFactor
+        // Mark the actor as executed and move the first not executed one over the executed prefix
+        val first = prev.firstNotExecuted[threadId]
+        val mask = prev.executedMasks[threadId] or (1L shl actorIndex - first)
+        val shift = java.lang.Long.numberOfTrailingZeros(mask.inv())
+        this.firstNotExecuted = prev.firstNotExecuted.copyOf().also { it[threadId] = first + shift }
+        this.executedMasks = prev.executedMasks.copyOf().also { it[threadId] = mask ushr shift }
+    }
+
+    override fun nextContexts(threadId: Int): List<QuasiLinearizabilityContext> {
+        // Check if there are unprocessed actors in the specified thread
+        if (isCompleted(threadId)) return emptyList()
+        val first = firstNotExecuted[threadId]
+        val mask = executedMasks[threadId]
+        // Only the actors which non-relaxed positions are at most quasi-factor after the current one can be executed
+        val last = minOf(scenario[threadId].size - 1, currentPosition(threadId) + quasiFactor - nonRelaxedPosition(threadId, 0))
+        var legalTransitions: MutableList<QuasiLinearizabilityContext>? = null
+        // The first not executed actor in the specified thread is skipped if any other one is executed
+        val canSkip = first < last && isLatenessPreserved(threadId, first)
+        for (i in first..last) {
+            if (mask and (1L shl i - first) != 0L) continue // already executed
+            if (i == first && !isLatenessPreserved(threadId, first + 1 + java.lang.Long.numberOfTrailingZeros((mask ushr 1).inv()))) continue
+            if (i != first && !canSkip) break
+            val nextState = state.next(scenario[threadId][i], results[threadId][i]) ?: continue
+            if (legalTransitions == null) legalTransitions = ArrayList()
+            legalTransitions.add(QuasiLinearizabilityContext(this, nextState, threadId, i))
+        }
+        return legalTransitions ?: emptyList()
+    }
+
+    // Returns `true` if the latenesses of all not executed actors are still at most quasi-factor after
+    // an actor from the specified thread is executed, so that [nextFirstNotExecuted] becomes the first
+    // not executed actor in this thread. It is enough to check the first not executed actors only.
+    private fun isLatenessPreserved(threadId: Int, nextFirstNotExecuted: Int): Boolean {
+        val parallel = threadId in 1..scenario.threads
+        for (t in 0..scenario.threads + 1) {
+            val first = if (t == threadId) nextFirstNotExecuted else firstNotExecuted[t]
+            if (first >= scenario[t].size) continue // all actors are executed
+            // The current position is moved by every actor except for the parallel part ones from other threads
+            val moved = !parallel || t == threadId || t !in 1..scenario.threads
+            val pos = currentPosition(t) + if (moved) 1 else 0
+            if (pos - nonRelaxedPosition(t, first) > quasiFactor) return false
+        }
+        return true
+    }
+
+    private fun currentPosition(threadId: Int) =
+        if (threadId in 1..scenario.threads) initExecuted + executed[threadId] + postExecuted else totalExecuted
+
+    private fun nonRelaxedPosition(threadId: Int, actorIndex: Int) = when (threadId) {
+        0 -> actorIndex
+        in 1..scenario.threads -> initActors + actorIndex
+        else -> initActors + parallelActors + actorIndex
+    }
+
+    override val visitedKey: Any? get() = VisitedKey(state, firstNotExecuted, executedMasks)
+
+    private class VisitedKey(val state: Any?, val firstNotExecuted: IntArray, val executedMasks: LongArray) {
+        override fun equals(other: Any?) = other is VisitedKey && state === other.state &&
+            firstNotExecuted.contentEquals(other.firstNotExecuted) && executedMasks.contentEquals(other.executedMasks)
+
+        override fun hashCode() = (System.identityHashCode(state) * 31 + firstNotExecuted.contentHashCode()) * 31 +
+            executedMasks.contentHashCode()
+    }
+}
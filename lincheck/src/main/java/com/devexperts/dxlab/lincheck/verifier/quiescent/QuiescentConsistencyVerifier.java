@@ -25,6 +25,7 @@ public class QuiescentConsistencyVerifier extends CachedVerifier {
     private final LinearizabilityVerifier linearizabilityVerifier;
 
     public QuiescentConsistencyVerifier(ExecutionScenario scenario, Class<?> testClass) {
+        super(testClass);
         this.originalScenario = scenario;
         this.linearizabilityVerifier = new LinearizabilityVerifier(convertScenario(scenario), testClass);
     }
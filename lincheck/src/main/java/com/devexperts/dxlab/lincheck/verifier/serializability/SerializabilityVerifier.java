@@ -28,6 +28,7 @@ public class SerializabilityVerifier extends CachedVerifier {
     private final LinearizabilityVerifier linearizabilityVerifier;
 
     public SerializabilityVerifier(ExecutionScenario scenario, Class<?> testClass) {
+        super(testClass);
         this.linearizabilityVerifier = new LinearizabilityVerifier(convertScenario(scenario), testClass);
     }
 
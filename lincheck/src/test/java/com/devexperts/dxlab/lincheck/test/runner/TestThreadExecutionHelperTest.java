@@ -13,6 +13,7 @@ package com.devexperts.dxlab.lincheck.test.runner;
 import com.devexperts.dxlab.lincheck.Actor;
 import com.devexperts.dxlab.lincheck.Result;
 import com.devexperts.dxlab.lincheck.execution.ExecutionResult;
+import com.devexperts.dxlab.lincheck.runner.PackedResults;
 import com.devexperts.dxlab.lincheck.runner.Runner;
 import com.devexperts.dxlab.lincheck.runner.TestThreadExecution;
 import com.devexperts.dxlab.lincheck.runner.TestThreadExecutionGenerator;
@@ -113,4 +114,47 @@ public class TestThreadExecutionHelperTest {
             Result.createExceptionResult(NoSuchElementException.class)
         }, ex.call());
     }
+
+    @Test
+    public void testPrimitiveResultsBatch() throws Exception {
+        TestThreadExecution ex = TestThreadExecutionGenerator.create(runner, 0,
+            Arrays.asList(
+                new Actor(ArrayDeque.class.getMethod("isEmpty"), Collections.emptyList(), Collections.emptyList()),
+                new Actor(ArrayDeque.class.getMethod("addFirst", Object.class), Arrays.asList(1), Collections.emptyList()),
+                new Actor(ArrayDeque.class.getMethod("size"), Collections.emptyList(), Collections.emptyList())
+            ), false);
+        ArrayDeque<Integer> nonEmpty = new ArrayDeque<>(Arrays.asList(1, 2));
+        ex.prepare(new Object[] {new ArrayDeque<>(), nonEmpty});
+        ex.runInvocations();
+        PackedResults[] results = ex.copyResults(2);
+        Assert.assertEquals(Arrays.asList(
+            Result.createValueResult(true),
+            Result.createVoidResult(),
+            Result.createValueResult(1)
+        ), results[0]);
+        Assert.assertEquals(Arrays.asList(
+            Result.createValueResult(false),
+            Result.createVoidResult(),
+            Result.createValueResult(3)
+        ), results[1]);
+    }
+
+    @Test
+    public void testSameShapeSharesClass() throws Exception {
+        TestThreadExecution ex1 = TestThreadExecutionGenerator.create(runner, 0,
+            Arrays.asList(
+                new Actor(Queue.class.getMethod("add", Object.class), Arrays.asList(1), Collections.emptyList()),
+                new Actor(Queue.class.getMethod("peek"), Collections.emptyList(), Collections.emptyList())
+            ), false);
+        TestThreadExecution ex2 = TestThreadExecutionGenerator.create(runner, 1,
+            Arrays.asList(
+                new Actor(Queue.class.getMethod("add", Object.class), Arrays.asList(2), Collections.emptyList()),
+                new Actor(Queue.class.getMethod("peek"), Collections.emptyList(), Collections.emptyList())
+            ), false);
+        Assert.assertSame(ex1.getClass(), ex2.getClass());
+        ex1.testInstance = new ArrayDeque<>();
+        ex2.testInstance = new ArrayDeque<>();
+        Assert.assertEquals(Result.createValueResult(1), ex1.call()[1]);
+        Assert.assertEquals(Result.createValueResult(2), ex2.call()[1]);
+    }
 }
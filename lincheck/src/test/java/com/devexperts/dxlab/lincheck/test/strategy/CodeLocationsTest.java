@@ -0,0 +1,116 @@
+/*
+ * Lincheck - Linearizability checker
+ *
+ * Copyright (C) 2015-2022 Devexperts, LLC
+ * Copyright (C) 2023 Devexperts Ireland Limited
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed with this file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.devexperts.dxlab.lincheck.test.strategy;
+
+import com.devexperts.dxlab.lincheck.LoggingLevel;
+import com.devexperts.dxlab.lincheck.Reporter;
+import com.devexperts.dxlab.lincheck.execution.ExecutionScenario;
+import com.devexperts.dxlab.lincheck.strategy.ManagedStrategy;
+import com.devexperts.dxlab.lincheck.verifier.EpsilonVerifier;
+import com.devexperts.jagent.ClassInfoVisitor;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Checks that the code locations inserted by {@link ManagedStrategy}'s transformer
+ * are described correctly.
+ */
+public class CodeLocationsTest {
+    private final List<Integer> codeLocations = new ArrayList<>();
+    private TestStrategy strategy;
+
+    @Before
+    public void setUp() {
+        ExecutionScenario scenario = new ExecutionScenario(Collections.emptyList(),
+            Collections.singletonList(Collections.emptyList()), Collections.emptyList());
+        strategy = new TestStrategy(scenario);
+    }
+
+    @Test
+    public void testClassesWithCollidingNames() throws Exception {
+        // "Aa" and "BB" have the same hash code
+        increment(Aa.class);
+        increment(BB.class);
+        Assert.assertEquals(2, codeLocations.size());
+        // The locations are described after both classes are transformed
+        StackTraceElement aLocation = strategy.describe(codeLocations.get(0));
+        StackTraceElement bLocation = strategy.describe(codeLocations.get(1));
+        Assert.assertTrue(aLocation.getClassName().endsWith("$Aa"));
+        Assert.assertTrue(bLocation.getClassName().endsWith("$BB"));
+        Assert.assertEquals("increment", bLocation.getMethodName());
+    }
+
+    @Test
+    public void testRestoreTransformation() throws Exception {
+        Assert.assertFalse("Not transformed classes have no code locations",
+            strategy.restoreTransformation(readClass(Aa.class)));
+        ClassReader cr = new ClassReader(readClass(BB.class));
+        ClassInfoVisitor ciVisitor = new ClassInfoVisitor();
+        cr.accept(ciVisitor, 0);
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
+        cr.accept(strategy.createTransformer(cw, ciVisitor.buildClassInfo()), ClassReader.EXPAND_FRAMES);
+        Assert.assertTrue("The same locations are registered",
+            strategy.restoreTransformation(cw.toByteArray()));
+    }
+
+    private void increment(Class<?> clazz) throws Exception {
+        Class<?> transformedClass = strategy.loadTransformedClass(clazz.getName());
+        transformedClass.getMethod("increment").invoke(transformedClass.newInstance());
+    }
+
+    private static byte[] readClass(Class<?> clazz) throws IOException {
+        ClassWriter cw = new ClassWriter(0);
+        new ClassReader(clazz.getName()).accept(cw, 0);
+        return cw.toByteArray();
+    }
+
+    private class TestStrategy extends ManagedStrategy {
+        TestStrategy(ExecutionScenario scenario) {
+            super(Aa.class, scenario, new EpsilonVerifier(scenario, Aa.class), new Reporter(LoggingLevel.ERROR), 0);
+        }
+
+        @Override
+        protected void runImpl() {}
+
+        @Override
+        public void beforeSharedVariableWrite(int iThread, int codeLocation) {
+            codeLocations.add(codeLocation);
+        }
+
+        StackTraceElement describe(int codeLocation) {
+            return getLocationDescription(codeLocation);
+        }
+    }
+
+    public static class Aa {
+        private int value;
+
+        public void increment() {
+            value++;
+        }
+    }
+
+    public static class BB {
+        private int value;
+
+        public void increment() {
+            value++;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Lincheck - Linearizability checker
+ *
+ * Copyright (C) 2015-2022 Devexperts, LLC
+ * Copyright (C) 2023 Devexperts Ireland Limited
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed with this file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.devexperts.dxlab.lincheck.test.strategy;
+
+import com.devexperts.dxlab.lincheck.LoggingLevel;
+import com.devexperts.dxlab.lincheck.Reporter;
+import com.devexperts.dxlab.lincheck.execution.ExecutionScenario;
+import com.devexperts.dxlab.lincheck.strategy.ManagedStrategy;
+import com.devexperts.dxlab.lincheck.verifier.EpsilonVerifier;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Checks that the code transformed by {@link ManagedStrategy} invokes
+ * the monitor, park/unpark, wait/notify and interrupt hooks.
+ */
+public class SynchronizationHooksTest {
+    private final List<String> events = new ArrayList<>();
+    private Class<?> instrumentedClass;
+    private Object instance;
+
+    @Before
+    public void setUp() throws Exception {
+        ExecutionScenario scenario = new ExecutionScenario(Collections.emptyList(),
+            Collections.singletonList(Collections.emptyList()), Collections.emptyList());
+        ManagedStrategy strategy = new ManagedStrategy(Primitives.class, scenario,
+            new EpsilonVerifier(scenario, Primitives.class), new Reporter(LoggingLevel.ERROR), 0)
+        {
+            @Override
+            protected void runImpl() {}
+
+            @Override
+            public void beforeLockAcquire(int iThread, int codeLocation, Object monitor) {
+                events.add("acquire " + describe(monitor));
+            }
+
+            @Override
+            public void afterLockRelease(int iThread, int codeLocation, Object monitor) {
+                events.add("release " + describe(monitor));
+            }
+
+            @Override
+            public void beforePark(int iThread, int codeLocation, boolean withTimeout) {
+                events.add("park " + withTimeout);
+            }
+
+            @Override
+            public void afterUnpark(int iThread, int codeLocation, Object thread) {
+                events.add("unpark " + (thread == Thread.currentThread()));
+            }
+
+            @Override
+            public void beforeWait(int iThread, int codeLocation, Object monitor, boolean withTimeout) {
+                events.add("wait " + describe(monitor) + " " + withTimeout);
+            }
+
+            @Override
+            public void afterNotify(int iThread, int codeLocation, Object monitor, boolean notifyAll) {
+                events.add("notify " + describe(monitor) + " " + notifyAll);
+            }
+
+            @Override
+            public void afterThreadInterrupt(int iThread, int codeLocation, int iInterruptedThread) {
+                events.add("interrupt " + iInterruptedThread);
+            }
+        };
+        instrumentedClass = strategy.loadTransformedClass(Primitives.class.getName());
+        instance = instrumentedClass.newInstance();
+    }
+
+    private String describe(Object monitor) {
+        return monitor == instance ? "this" : monitor == instrumentedClass ? "class" : "lock";
+    }
+
+    @Test
+    public void testSynchronizedBlock() throws Exception {
+        invoke("synchronizedBlock");
+        Assert.assertEquals(Arrays.asList("acquire lock", "release lock"), events);
+    }
+
+    @Test
+    public void testSynchronizedMethods() throws Exception {
+        Assert.assertEquals(1, invoke("synchronizedMethod"));
+        invoke("staticSynchronizedMethod");
+        Assert.assertEquals(Arrays.asList("acquire this", "release this", "acquire class", "release class"), events);
+    }
+
+    @Test
+    public void testSynchronizedMethodReleasesMonitorOnException() throws Exception {
+        try {
+            invoke("synchronizedMethodWithException");
+            Assert.fail();
+        } catch (InvocationTargetException e) {
+            Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        Assert.assertFalse(Thread.holdsLock(instance));
+        Assert.assertEquals(Arrays.asList("acquire this", "release this"), events);
+    }
+
+    @Test
+    public void testWaitAndNotify() throws Exception {
+        invoke("waitAndNotify");
+        Assert.assertEquals(Arrays.asList("acquire lock", "notify lock false", "notify lock true",
+            "wait lock true", "wait lock true", "release lock"), events);
+    }
+
+    @Test
+    public void testParkAndUnpark() throws Exception {
+        invoke("parkAndUnpark");
+        Assert.assertEquals(Arrays.asList("unpark true", "park false", "park true"), events);
+    }
+
+    @Test
+    public void testInterrupt() throws Exception {
+        invoke("interrupt");
+        Assert.assertEquals(Arrays.asList("interrupt -1", "interrupt -1"), events);
+    }
+
+    private Object invoke(String method) throws Exception {
+        return instrumentedClass.getMethod(method).invoke(instance);
+    }
+
+    public static class Primitives {
+        private final Object lock = new Object();
+        private int value;
+
+        public void synchronizedBlock() {
+            synchronized (lock) {
+                value++;
+            }
+        }
+
+        public synchronized int synchronizedMethod() {
+            return ++value;
+        }
+
+        public static synchronized void staticSynchronizedMethod() {
+        }
+
+        public synchronized void synchronizedMethodWithException() {
+            throw new IllegalStateException();
+        }
+
+        public void waitAndNotify() throws InterruptedException {
+            synchronized (lock) {
+                lock.notify();
+                lock.notifyAll();
+                lock.wait(1);
+                lock.wait(1, 1);
+            }
+        }
+
+        public void parkAndUnpark() {
+            LockSupport.unpark(Thread.currentThread());
+            LockSupport.park();
+            LockSupport.parkNanos(1);
+        }
+
+        public void interrupt() {
+            Thread.currentThread().interrupt();
+            Thread.interrupted();
+            new CustomThread().interrupt(); // the owner is the subclass
+            new Interruptible().interrupt(); // not a thread
+        }
+    }
+
+    public static class CustomThread extends Thread {
+    }
+
+    public static class Interruptible {
+        public void interrupt() {
+        }
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Lincheck - Linearizability checker
+ *
+ * Copyright (C) 2015-2022 Devexperts, LLC
+ * Copyright (C) 2023 Devexperts Ireland Limited
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed with this file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.devexperts.dxlab.lincheck.test.strategy.cooperative;
+
+import com.devexperts.dxlab.lincheck.Actor;
+import com.devexperts.dxlab.lincheck.LoggingLevel;
+import com.devexperts.dxlab.lincheck.Reporter;
+import com.devexperts.dxlab.lincheck.Result;
+import com.devexperts.dxlab.lincheck.execution.ExecutionResult;
+import com.devexperts.dxlab.lincheck.execution.ExecutionScenario;
+import com.devexperts.dxlab.lincheck.strategy.cooperative.CooperativeOptions;
+import com.devexperts.dxlab.lincheck.strategy.cooperative.CooperativeStrategy;
+import com.devexperts.dxlab.lincheck.verifier.Verifier;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Checks that {@link CooperativeStrategy} keeps the control over the threads which block
+ * in the transformed code, and reports the invocations in which the control is lost.
+ */
+public class CooperativeBlockingTest {
+    private static final int INVOCATIONS = 100;
+
+    @Test
+    public void testParkUnpark() throws Exception {
+        List<List<List<Result>>> results = testControlled(ParkingLatch.class, "await", "signal");
+        // Make sure that the thread has been parked in some invocations, otherwise the check is trivial
+        Assert.assertTrue(results.stream().anyMatch(r -> !r.get(0).get(0).equals(Result.createValueResult(0))));
+    }
+
+    @Test
+    public void testWaitNotify() throws Exception {
+        testControlled(Slot.class, "take", "put");
+    }
+
+    @Test
+    public void testNonTransformedBlockingIsReported() throws Exception {
+        Actor incAndGet = new Actor(LockedCounter.class.getMethod("incAndGet"), Collections.emptyList(), Collections.emptyList());
+        ExecutionScenario scenario = new ExecutionScenario(Collections.emptyList(),
+            Arrays.asList(Collections.singletonList(incAndGet), Collections.singletonList(incAndGet)), Collections.emptyList());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CooperativeStrategy strategy = new CooperativeStrategy(LockedCounter.class, scenario, new RecordingVerifier(),
+            new CooperativeOptions().threads(2).invocationsPerIteration(INVOCATIONS).blockingTimeoutMillis(10)
+                .createTestConfigurations(),
+            new Reporter(LoggingLevel.WARN, new PrintStream(out, true)));
+        strategy.run();
+        // ReentrantLock parks in the non-transformed code, the other thread cannot be chosen then
+        Assert.assertTrue(strategy.getUncontrolledInvocations() > 0);
+        Assert.assertTrue(out.toString(), out.toString().contains(
+            "not reproducible: " + strategy.getUncontrolledInvocations() + " of " + INVOCATIONS));
+    }
+
+    private static List<List<List<Result>>> testControlled(Class<?> testClass, String blocking, String waking) throws Exception {
+        Actor blockingActor = new Actor(testClass.getMethod(blocking), Collections.emptyList(), Collections.emptyList());
+        Actor wakingActor = new Actor(testClass.getMethod(waking), Collections.emptyList(), Collections.emptyList());
+        ExecutionScenario scenario = new ExecutionScenario(Collections.emptyList(),
+            Arrays.asList(Collections.singletonList(blockingActor), Collections.singletonList(wakingActor)),
+            Collections.emptyList());
+        List<List<List<Result>>> first = run(testClass, scenario);
+        List<List<List<Result>>> second = run(testClass, scenario);
+        Assert.assertEquals(first, second);
+        return first;
+    }
+
+    private static List<List<List<Result>>> run(Class<?> testClass, ExecutionScenario scenario) throws Exception {
+        RecordingVerifier verifier = new RecordingVerifier();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        // The blocked threads should never be detected by the timeout
+        CooperativeStrategy strategy = new CooperativeStrategy(testClass, scenario, verifier,
+            new CooperativeOptions().threads(2).invocationsPerIteration(INVOCATIONS).blockingTimeoutMillis(1_000)
+                .createTestConfigurations(),
+            new Reporter(LoggingLevel.WARN, new PrintStream(out, true)));
+        strategy.run();
+        Assert.assertEquals(0, strategy.getUncontrolledInvocations());
+        Assert.assertEquals("", out.toString());
+        Assert.assertEquals(INVOCATIONS, verifier.parallelResults.size());
+        return verifier.parallelResults;
+    }
+
+    private static class RecordingVerifier implements Verifier {
+        final List<List<List<Result>>> parallelResults = new ArrayList<>();
+
+        @Override
+        public boolean verifyResults(ExecutionResult results) {
+            parallelResults.add(results.parallelResults);
+            return true;
+        }
+    }
+
+    public static class ParkingLatch {
+        private volatile Thread waiter;
+        private volatile boolean signalled;
+        private int parks;
+
+        public int await() {
+            waiter = Thread.currentThread();
+            while (!signalled) {
+                parks++;
+                LockSupport.park();
+            }
+            return parks;
+        }
+
+        public void signal() {
+            signalled = true;
+            Thread w = waiter;
+            if (w != null)
+                LockSupport.unpark(w);
+        }
+    }
+
+    public static class Slot {
+        private Integer value;
+
+        public synchronized int take() throws InterruptedException {
+            while (value == null)
+                wait();
+            int v = value;
+            value = null;
+            return v;
+        }
+
+        public synchronized void put() {
+            value = 42;
+            notify();
+        }
+    }
+
+    public static class LockedCounter {
+        private final ReentrantLock lock = new ReentrantLock();
+        private int value;
+
+        public int incAndGet() {
+            lock.lock();
+            try {
+                return ++value;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
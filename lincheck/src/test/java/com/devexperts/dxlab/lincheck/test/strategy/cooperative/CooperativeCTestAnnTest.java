@@ -0,0 +1,36 @@
+/*
+ * Lincheck - Linearizability checker
+ *
+ * Copyright (C) 2015-2022 Devexperts, LLC
+ * Copyright (C) 2023 Devexperts Ireland Limited
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed with this file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.devexperts.dxlab.lincheck.test.strategy.cooperative;
+
+import com.devexperts.dxlab.lincheck.LinChecker;
+import com.devexperts.dxlab.lincheck.annotations.Operation;
+import com.devexperts.dxlab.lincheck.execution.RandomExecutionGenerator;
+import com.devexperts.dxlab.lincheck.strategy.cooperative.CooperativeCTest;
+import com.devexperts.dxlab.lincheck.verifier.linearizability.LinearizabilityVerifier;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+@CooperativeCTest(threads = 3, actorsPerThread = 3, iterations = 10, invocationsPerIteration = 5,
+    generator = RandomExecutionGenerator.class, verifier = LinearizabilityVerifier.class)
+public class CooperativeCTestAnnTest {
+    private AtomicInteger i = new AtomicInteger();
+
+    @Operation()
+    public int incAndGet() {
+        return i.incrementAndGet();
+    }
+
+    @Test
+    public void test() {
+        LinChecker.check(CooperativeCTestAnnTest.class);
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Lincheck - Linearizability checker
+ *
+ * Copyright (C) 2015-2022 Devexperts, LLC
+ * Copyright (C) 2023 Devexperts Ireland Limited
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed with this file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.devexperts.dxlab.lincheck.test.strategy.cooperative;
+
+import com.devexperts.dxlab.lincheck.LinChecker;
+import com.devexperts.dxlab.lincheck.annotations.Operation;
+import com.devexperts.dxlab.lincheck.execution.RandomExecutionGenerator;
+import com.devexperts.dxlab.lincheck.strategy.cooperative.CooperativeOptions;
+import com.devexperts.dxlab.lincheck.verifier.linearizability.LinearizabilityVerifier;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CooperativeOptionsTest {
+    private AtomicInteger i = new AtomicInteger();
+
+    @Operation()
+    public int incAndGet() {
+        return i.incrementAndGet();
+    }
+
+    @Test
+    public void test() {
+        LinChecker.check(CooperativeOptionsTest.class, options());
+    }
+
+    @Test
+    public void testMonitors() {
+        LinChecker.check(SynchronizedCounter.class, options().threads(3));
+    }
+
+    @Test(expected = AssertionError.class)
+    public void testIncorrectCounter() {
+        LinChecker.check(IncorrectCounter.class, options());
+    }
+
+    private static CooperativeOptions options() {
+        return new CooperativeOptions()
+            .iterations(10)
+            .invocationsPerIteration(200)
+            .seed(42)
+            .executionGenerator(RandomExecutionGenerator.class)
+            .threads(2)
+            .actorsPerThread(4)
+            .verifier(LinearizabilityVerifier.class);
+    }
+
+    public static class SynchronizedCounter {
+        private int value;
+
+        @Operation
+        public synchronized int incAndGet() {
+            return ++value;
+        }
+
+        @Operation
+        public int get() {
+            synchronized (this) {
+                return value;
+            }
+        }
+    }
+
+    public static class IncorrectCounter {
+        private int value;
+
+        @Operation
+        public int incAndGet() {
+            return ++value;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Lincheck - Linearizability checker
+ *
+ * Copyright (C) 2015-2022 Devexperts, LLC
+ * Copyright (C) 2023 Devexperts Ireland Limited
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed with this file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.devexperts.dxlab.lincheck.test.strategy.cooperative;
+
+import com.devexperts.dxlab.lincheck.Actor;
+import com.devexperts.dxlab.lincheck.LoggingLevel;
+import com.devexperts.dxlab.lincheck.Reporter;
+import com.devexperts.dxlab.lincheck.Result;
+import com.devexperts.dxlab.lincheck.execution.ExecutionResult;
+import com.devexperts.dxlab.lincheck.execution.ExecutionScenario;
+import com.devexperts.dxlab.lincheck.strategy.cooperative.CooperativeOptions;
+import com.devexperts.dxlab.lincheck.strategy.cooperative.CooperativeStrategy;
+import com.devexperts.dxlab.lincheck.verifier.Verifier;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Checks that {@link CooperativeStrategy} produces the same interleavings for the same seed.
+ */
+public class CooperativeSeedTest {
+    private static final int THREADS = 3;
+    private static final int INVOCATIONS = 100;
+
+    @Test
+    public void testSameSeedSameInterleavings() throws Exception {
+        ExecutionScenario scenario = scenario();
+        List<List<List<Result>>> first = run(scenario, 42);
+        List<List<List<Result>>> second = run(scenario, 42);
+        Assert.assertEquals(first, second);
+        // Make sure that the interleavings differ between invocations, otherwise the check is trivial
+        Assert.assertTrue(new HashSet<>(first).size() > 1);
+    }
+
+    private static List<List<List<Result>>> run(ExecutionScenario scenario, long seed) throws Exception {
+        RecordingVerifier verifier = new RecordingVerifier();
+        CooperativeStrategy strategy = new CooperativeStrategy(RacyCounter.class, scenario, verifier,
+            new CooperativeOptions().threads(THREADS).invocationsPerIteration(INVOCATIONS).seed(seed)
+                .createTestConfigurations(),
+            new Reporter(LoggingLevel.ERROR));
+        strategy.run();
+        Assert.assertEquals(INVOCATIONS, verifier.parallelResults.size());
+        return verifier.parallelResults;
+    }
+
+    private static ExecutionScenario scenario() throws NoSuchMethodException {
+        Actor incAndGet = new Actor(RacyCounter.class.getMethod("incAndGet"), Collections.emptyList(), Collections.emptyList());
+        List<List<Actor>> parallel = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++)
+            parallel.add(Arrays.asList(incAndGet, incAndGet));
+        return new ExecutionScenario(Collections.emptyList(), parallel, Collections.emptyList());
+    }
+
+    private static class RecordingVerifier implements Verifier {
+        final List<List<List<Result>>> parallelResults = new ArrayList<>();
+
+        @Override
+        public boolean verifyResults(ExecutionResult results) {
+            parallelResults.add(results.parallelResults);
+            return true;
+        }
+    }
+
+    public static class RacyCounter {
+        private int value;
+
+        public int incAndGet() {
+            int x = value;
+            value = x + 1;
+            return x + 1;
+        }
+    }
+}
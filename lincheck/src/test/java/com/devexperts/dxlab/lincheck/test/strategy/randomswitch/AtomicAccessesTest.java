@@ -0,0 +1,122 @@
+/*
+ * Lincheck - Linearizability checker
+ *
+ * Copyright (C) 2015-2022 Devexperts, LLC
+ * Copyright (C) 2023 Devexperts Ireland Limited
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed with this file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.devexperts.dxlab.lincheck.test.strategy.randomswitch;
+
+import com.devexperts.dxlab.lincheck.LinChecker;
+import com.devexperts.dxlab.lincheck.LoggingLevel;
+import com.devexperts.dxlab.lincheck.Options;
+import com.devexperts.dxlab.lincheck.Reporter;
+import com.devexperts.dxlab.lincheck.annotations.Operation;
+import com.devexperts.dxlab.lincheck.execution.ExecutionScenario;
+import com.devexperts.dxlab.lincheck.strategy.ManagedStrategy;
+import com.devexperts.dxlab.lincheck.strategy.randomswitch.RandomSwitchOptions;
+import com.devexperts.dxlab.lincheck.verifier.EpsilonVerifier;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+public class AtomicAccessesTest {
+    @Test
+    public void testAtomicOperationsAreInstrumented() {
+        LinChecker.check(FieldUpdaterCounter.class, options());
+        // The only shared variable access is the field updater invocation,
+        // the updater field itself is written in the static initializer and read as a final one
+        String className = FieldUpdaterCounter.class.getName();
+        Assert.assertEquals(1, ManagedStrategy.getInstrumentedSharedVariableAccesses(className));
+        Assert.assertEquals(2, ManagedStrategy.getSkippedSharedVariableAccesses(className));
+    }
+
+    @Test
+    public void testReadModifyWriteOperationsAreWrites() throws Exception {
+        List<String> accesses = new ArrayList<>();
+        ExecutionScenario scenario = new ExecutionScenario(Collections.emptyList(),
+            Collections.singletonList(Collections.emptyList()), Collections.emptyList());
+        ManagedStrategy strategy = new ManagedStrategy(AtomicOperations.class, scenario,
+            new EpsilonVerifier(scenario, AtomicOperations.class), new Reporter(LoggingLevel.ERROR), 0)
+        {
+            @Override
+            protected void runImpl() {}
+
+            @Override
+            public void beforeSharedVariableRead(int iThread, int codeLocation) {
+                accesses.add("read");
+            }
+
+            @Override
+            public void beforeSharedVariableWrite(int iThread, int codeLocation) {
+                accesses.add("write");
+            }
+        };
+        Class<?> transformedClass = strategy.loadTransformedClass(AtomicOperations.class.getName());
+        transformedClass.getMethod("operations").invoke(transformedClass.newInstance());
+        Assert.assertEquals(Arrays.asList("read", "write", "write", "write", "write", "write", "write"), accesses);
+    }
+
+    @Test(expected = AssertionError.class)
+    public void testNonAtomicIncrement() {
+        LinChecker.check(IncorrectAtomicCounter.class, options());
+    }
+
+    private static Options options() {
+        return new RandomSwitchOptions()
+            .iterations(10)
+            .invocationsPerIteration(200)
+            .threads(2)
+            .actorsPerThread(3);
+    }
+
+    public static class FieldUpdaterCounter {
+        private static final AtomicIntegerFieldUpdater<FieldUpdaterCounter> VALUE_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(FieldUpdaterCounter.class, "value");
+
+        private volatile int value;
+
+        @Operation
+        public int incAndGet() {
+            return VALUE_UPDATER.incrementAndGet(this);
+        }
+    }
+
+    public static class AtomicOperations {
+        private static final AtomicIntegerFieldUpdater<AtomicOperations> VALUE_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(AtomicOperations.class, "updatedValue");
+
+        private final AtomicInteger value = new AtomicInteger();
+        private volatile int updatedValue;
+
+        public void operations() {
+            value.get();
+            value.incrementAndGet();
+            value.getAndAdd(2);
+            value.compareAndSet(3, 4);
+            value.weakCompareAndSet(4, 5);
+            VALUE_UPDATER.getAndIncrement(this);
+            value.set(0);
+        }
+    }
+
+    public static class IncorrectAtomicCounter {
+        private final AtomicInteger value = new AtomicInteger();
+
+        @Operation
+        public int incAndGet() {
+            int x = value.get();
+            value.set(x + 1);
+            return x + 1;
+        }
+    }
+}
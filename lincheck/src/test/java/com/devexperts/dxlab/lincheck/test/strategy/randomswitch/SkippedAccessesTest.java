@@ -0,0 +1,76 @@
+/*
+ * Lincheck - Linearizability checker
+ *
+ * Copyright (C) 2015-2022 Devexperts, LLC
+ * Copyright (C) 2023 Devexperts Ireland Limited
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed with this file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.devexperts.dxlab.lincheck.test.strategy.randomswitch;
+
+import com.devexperts.dxlab.lincheck.LinChecker;
+import com.devexperts.dxlab.lincheck.Options;
+import com.devexperts.dxlab.lincheck.annotations.Operation;
+import com.devexperts.dxlab.lincheck.strategy.ManagedStrategy;
+import com.devexperts.dxlab.lincheck.strategy.randomswitch.RandomSwitchOptions;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SkippedAccessesTest {
+    @Test
+    public void testFinalFieldsAndConstructorWrites() {
+        LinChecker.check(SynchronizedCounter.class, options());
+        // The final field read and the constructor writes are not instrumented,
+        // the value is read and written in the synchronized block
+        String className = SynchronizedCounter.class.getName();
+        Assert.assertEquals(2, ManagedStrategy.getInstrumentedSharedVariableAccesses(className));
+        Assert.assertEquals(3, ManagedStrategy.getSkippedSharedVariableAccesses(className));
+    }
+
+    @Test(expected = AssertionError.class)
+    public void testNonFinalFieldsAreInstrumented() {
+        LinChecker.check(IncorrectCounter.class, options());
+    }
+
+    private static Options options() {
+        return new RandomSwitchOptions()
+            .iterations(10)
+            .invocationsPerIteration(200)
+            .threads(2)
+            .actorsPerThread(3);
+    }
+
+    public static class SynchronizedCounter {
+        private final Object lock = new Object();
+        private int value;
+
+        public SynchronizedCounter() {
+            value = 0;
+        }
+
+        @Operation
+        public int incAndGet() {
+            synchronized (lock) {
+                return ++value;
+            }
+        }
+    }
+
+    public static class IncorrectCounter {
+        private final int delta;
+        private int value;
+
+        public IncorrectCounter() {
+            delta = 1;
+        }
+
+        @Operation
+        public int incAndGet() {
+            int x = value;
+            value = x + delta;
+            return value;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Lincheck - Linearizability checker
+ *
+ * Copyright (C) 2015-2022 Devexperts, LLC
+ * Copyright (C) 2023 Devexperts Ireland Limited
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed with this file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.devexperts.dxlab.lincheck.test.strategy.stress;
+
+import com.devexperts.dxlab.lincheck.Actor;
+import com.devexperts.dxlab.lincheck.LinChecker;
+import com.devexperts.dxlab.lincheck.LoggingLevel;
+import com.devexperts.dxlab.lincheck.Options;
+import com.devexperts.dxlab.lincheck.Reporter;
+import com.devexperts.dxlab.lincheck.annotations.Operation;
+import com.devexperts.dxlab.lincheck.execution.ExecutionResult;
+import com.devexperts.dxlab.lincheck.execution.ExecutionScenario;
+import com.devexperts.dxlab.lincheck.strategy.stress.StressOptions;
+import com.devexperts.dxlab.lincheck.strategy.stress.StressStrategy;
+import com.devexperts.dxlab.lincheck.verifier.Verifier;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class AsyncVerificationTest {
+    @Test
+    public void testCorrect() {
+        LinChecker.check(CorrectCounter.class, options());
+    }
+
+    @Test(expected = AssertionError.class)
+    public void testIncorrect() {
+        LinChecker.check(IncorrectCounter.class, options());
+    }
+
+    @Test
+    public void testIncorrectResultsReportedAndRestCancelled() throws Exception {
+        int invocations = 1_000;
+        int incorrectInvocation = 10;
+        ExecutionScenario scenario = scenario();
+        FailingVerifier verifier = new FailingVerifier(incorrectInvocation);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StressStrategy strategy = new StressStrategy(CorrectCounter.class, scenario, verifier,
+            new StressOptions().invocationsPerIteration(invocations).verificationThreads(2).createTestConfigurations(),
+            new Reporter(LoggingLevel.ERROR, new PrintStream(out, true)));
+        try {
+            strategy.run();
+            strategy.completeVerification();
+            Assert.fail("Incorrect results should be reported");
+        } catch (AssertionError expected) {
+            // the incorrect results are found
+        } finally {
+            strategy.cancelVerification();
+        }
+        // Exactly the incorrect results are reported with the scenario of this strategy
+        ByteArrayOutputStream expectedOut = new ByteArrayOutputStream();
+        new Reporter(LoggingLevel.ERROR, new PrintStream(expectedOut, true))
+            .logIncorrectResults(scenario, verifier.incorrectResults);
+        Assert.assertEquals(expectedOut.toString(), out.toString());
+        // The verification stops soon after the incorrect results are found
+        Assert.assertTrue("Verified: " + verifier.verified.get(), verifier.verified.get() < invocations / 2);
+    }
+
+    @Test
+    public void testCancelWaitsForWorkers() throws Exception {
+        ExecutionScenario scenario = scenario();
+        SlowVerifier verifier = new SlowVerifier();
+        StressStrategy strategy = new StressStrategy(CorrectCounter.class, scenario, verifier,
+            new StressOptions().invocationsPerIteration(1_000).verificationThreads(2).createTestConfigurations(),
+            new Reporter(LoggingLevel.ERROR, new PrintStream(new ByteArrayOutputStream(), true)));
+        try {
+            strategy.run();
+            strategy.completeVerification();
+            Assert.fail("Incorrect results should be reported");
+        } catch (AssertionError expected) {
+            // the incorrect results are found
+        } finally {
+            strategy.cancelVerification();
+        }
+        Assert.assertEquals("No results are verified after the cancellation", 0, verifier.inProgress.get());
+        int verified = verifier.verified.get();
+        Thread.sleep(3 * SlowVerifier.VERIFICATION_MILLIS);
+        Assert.assertEquals(verified, verifier.verified.get());
+    }
+
+    private static ExecutionScenario scenario() throws NoSuchMethodException {
+        Actor incAndGet = new Actor(CorrectCounter.class.getMethod("incAndGet"), Collections.emptyList(), Collections.emptyList());
+        List<List<Actor>> parallel = new ArrayList<>();
+        for (int t = 0; t < 2; t++)
+            parallel.add(Arrays.asList(incAndGet, incAndGet));
+        return new ExecutionScenario(Collections.singletonList(incAndGet), parallel, Collections.singletonList(incAndGet));
+    }
+
+    /**
+     * Considers the results of the specified invocation in the verification order as incorrect.
+     */
+    private static class FailingVerifier implements Verifier {
+        final AtomicInteger verified = new AtomicInteger();
+        final int incorrectInvocation;
+        volatile ExecutionResult incorrectResults;
+
+        FailingVerifier(int incorrectInvocation) {
+            this.incorrectInvocation = incorrectInvocation;
+        }
+
+        @Override
+        public boolean verifyResults(ExecutionResult results) {
+            if (verified.incrementAndGet() != incorrectInvocation)
+                return true;
+            incorrectResults = results;
+            return false;
+        }
+    }
+
+    /**
+     * Considers the second results as incorrect and verifies the other ones slowly,
+     * so that the first ones are being verified when the verification is cancelled.
+     */
+    private static class SlowVerifier implements Verifier {
+        static final long VERIFICATION_MILLIS = 50;
+        final AtomicInteger verified = new AtomicInteger();
+        final AtomicInteger inProgress = new AtomicInteger();
+
+        @Override
+        public boolean verifyResults(ExecutionResult results) {
+            if (verified.incrementAndGet() == 2)
+                return false;
+            inProgress.incrementAndGet();
+            try {
+                Thread.sleep(VERIFICATION_MILLIS);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            } finally {
+                inProgress.decrementAndGet();
+            }
+            return true;
+        }
+    }
+
+    private static Options options() {
+        return new StressOptions()
+            .iterations(10)
+            .invocationsPerIteration(200)
+            .threads(3)
+            .actorsPerThread(3)
+            .verificationThreads(2);
+    }
+
+    public static class CorrectCounter {
+        private AtomicInteger i = new AtomicInteger();
+
+        @Operation
+        public int incAndGet() {
+            return i.incrementAndGet();
+        }
+    }
+
+    public static class IncorrectCounter {
+        private int i;
+
+        @Operation
+        public int incAndGet() {
+            int x = i;
+            Thread.yield();
+            return i = x + 1;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Lincheck - Linearizability checker
+ *
+ * Copyright (C) 2015-2022 Devexperts, LLC
+ * Copyright (C) 2023 Devexperts Ireland Limited
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed with this file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.devexperts.dxlab.lincheck.test.strategy.stress;
+
+import com.devexperts.dxlab.lincheck.LinChecker;
+import com.devexperts.dxlab.lincheck.LoggingLevel;
+import com.devexperts.dxlab.lincheck.annotations.Operation;
+import com.devexperts.dxlab.lincheck.strategy.stress.StressOptions;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class ParallelIterationsTest {
+    private static final int ITERATIONS = 10;
+    private static final Pattern ITERATION_PATTERN = Pattern.compile(
+        "= Iteration (\\d+) / \\d+ =\n(Execution scenario \\(init part\\):.*?Execution scenario \\(post part\\):\n[^\n]*)",
+        Pattern.DOTALL);
+
+    @Test
+    public void testScenariosDoNotDependOnParallelIterations() {
+        Map<Integer, String> sequential = iterationScenarios(1);
+        Assert.assertEquals(ITERATIONS, sequential.size());
+        Assert.assertEquals(sequential, iterationScenarios(4));
+    }
+
+    @Test
+    public void testMaxThreads() {
+        // Every iteration uses 2 test threads and the strategy one,
+        // thus only 2 iterations fit into 7 threads
+        StrategyThreadsCounter.strategyThreads.clear();
+        LinChecker.check(StrategyThreadsCounter.class, options(8).maxThreads(7));
+        Assert.assertEquals(2, StrategyThreadsCounter.strategyThreads.size());
+    }
+
+    /**
+     * Runs the test with the specified number of parallel iterations
+     * and returns the logged scenarios by the iteration numbers.
+     */
+    private static Map<Integer, String> iterationScenarios(int parallelIterations) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PrintStream systemOut = System.out;
+        System.setOut(new PrintStream(out, true));
+        try {
+            LinChecker.check(CorrectCounter.class, options(parallelIterations).logLevel(LoggingLevel.INFO));
+        } finally {
+            System.setOut(systemOut);
+        }
+        Map<Integer, String> scenarios = new HashMap<>();
+        Matcher m = ITERATION_PATTERN.matcher(out.toString().replace(System.lineSeparator(), "\n"));
+        while (m.find())
+            scenarios.put(Integer.parseInt(m.group(1)), m.group(2));
+        return scenarios;
+    }
+
+    private static StressOptions options(int parallelIterations) {
+        return new StressOptions()
+            .iterations(ITERATIONS)
+            .invocationsPerIteration(50)
+            .threads(2)
+            .actorsPerThread(3)
+            .parallelIterations(parallelIterations)
+            .maxThreads(12);
+    }
+
+    public static class CorrectCounter {
+        private AtomicInteger i = new AtomicInteger();
+
+        @Operation
+        public int incAndGet() {
+            return i.incrementAndGet();
+        }
+
+        @Operation
+        public int get() {
+            return i.get();
+        }
+    }
+
+    public static class StrategyThreadsCounter extends CorrectCounter {
+        // The test instances are created by the strategies, the stress runner
+        // does not transform classes, thus this state is shared with the test
+        static final Set<Thread> strategyThreads = ConcurrentHashMap.newKeySet();
+
+        public StrategyThreadsCounter() {
+            strategyThreads.add(Thread.currentThread());
+        }
+    }
+}
@@ -41,4 +41,9 @@ public class StressOptionsTest {
             .logLevel(LoggingLevel.INFO);
         LinChecker.check(StressOptionsTest.class, opts);
     }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNonPositiveInvocationsPerBatch() {
+        new StressOptions().invocationsPerBatch(0);
+    }
 }
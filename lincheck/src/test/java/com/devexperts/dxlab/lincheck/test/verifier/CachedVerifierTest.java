@@ -0,0 +1,205 @@
+/*
+ * Lincheck - Linearizability checker
+ *
+ * Copyright (C) 2015-2022 Devexperts, LLC
+ * Copyright (C) 2023 Devexperts Ireland Limited
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed with this file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.devexperts.dxlab.lincheck.test.verifier;
+
+import com.devexperts.dxlab.lincheck.Actor;
+import com.devexperts.dxlab.lincheck.LoggingLevel;
+import com.devexperts.dxlab.lincheck.Reporter;
+import com.devexperts.dxlab.lincheck.Result;
+import com.devexperts.dxlab.lincheck.execution.ExecutionResult;
+import com.devexperts.dxlab.lincheck.execution.ExecutionScenario;
+import com.devexperts.dxlab.lincheck.runner.PackedResults;
+import com.devexperts.dxlab.lincheck.runner.ParallelThreadsRunner;
+import com.devexperts.dxlab.lincheck.runner.Runner;
+import com.devexperts.dxlab.lincheck.strategy.Strategy;
+import com.devexperts.dxlab.lincheck.verifier.CachedVerifier;
+import com.devexperts.dxlab.lincheck.verifier.EpsilonVerifier;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class CachedVerifierTest {
+    @Test
+    public void testHitsAndMisses() {
+        CountingVerifier verifier = new CountingVerifier(16, CachedVerifier.EvictionPolicy.CLEAR);
+        for (int i = 0; i < 3; i++) {
+            Assert.assertTrue(verifier.verifyResults(results(1)));
+            Assert.assertTrue(verifier.verifyResults(results(2)));
+        }
+        Assert.assertEquals(2, verifier.verified);
+        Assert.assertEquals(2, verifier.getMisses());
+        Assert.assertEquals(4, verifier.getHits());
+    }
+
+    @Test
+    public void testIncorrectResultsAreNotCached() {
+        CountingVerifier verifier = new CountingVerifier(16, CachedVerifier.EvictionPolicy.CLEAR);
+        Assert.assertFalse(verifier.verifyResults(results(-1)));
+        Assert.assertFalse(verifier.verifyResults(results(-1)));
+        Assert.assertEquals(0, verifier.getHits());
+    }
+
+    @Test
+    public void testEviction() {
+        for (CachedVerifier.EvictionPolicy policy : CachedVerifier.EvictionPolicy.values()) {
+            CountingVerifier verifier = new CountingVerifier(16, policy);
+            for (int i = 0; i < 1000; i++)
+                Assert.assertTrue(verifier.verifyResults(results(i)));
+            Assert.assertEquals(1000, verifier.verified);
+            // The most recent result should be still cached
+            Assert.assertTrue(verifier.verifyResults(results(999)));
+            Assert.assertEquals(1000, verifier.verified);
+        }
+    }
+
+    @Test
+    public void testResultsWithCollidingHashCodesAndStrings() {
+        CountingVerifier verifier = new CountingVerifier(16, CachedVerifier.EvictionPolicy.CLEAR);
+        Assert.assertTrue(verifier.verifyResults(results(new Colliding(1))));
+        Assert.assertFalse(verifier.verifyResults(results(new Colliding(-1))));
+        Assert.assertTrue(verifier.verifyResults(results(new Colliding(1))));
+        Assert.assertEquals(2, verifier.verified);
+        Assert.assertEquals(1, verifier.getHits());
+    }
+
+    @Test
+    public void testPackedResultsAreFingerprintedAsMaterialized() throws Exception {
+        List<Actor> actors = new ArrayList<>();
+        for (String name : new String[] {"voidOp", "booleanOp", "byteOp", "charOp", "shortOp", "intOp",
+            "longOp", "floatOp", "doubleOp", "stringOp", "nullOp"})
+        {
+            actors.add(new Actor(AllTypes.class.getMethod(name), Collections.emptyList(), Collections.emptyList()));
+        }
+        actors.add(new Actor(AllTypes.class.getMethod("exceptionOp"), Collections.emptyList(),
+            Collections.singletonList(IllegalStateException.class)));
+        ExecutionScenario scenario = new ExecutionScenario(Collections.emptyList(),
+            Collections.singletonList(actors), Collections.emptyList());
+        Strategy strategy = new Strategy(scenario, new EpsilonVerifier(scenario, AllTypes.class),
+            new Reporter(LoggingLevel.ERROR))
+        {
+            @Override
+            public void run() {}
+        };
+        Runner runner = new ParallelThreadsRunner(scenario, strategy, AllTypes.class, null);
+        ExecutionResult packed;
+        try {
+            packed = runner.run();
+        } finally {
+            runner.close();
+        }
+        Assert.assertTrue(packed.parallelResults.get(0) instanceof PackedResults);
+        ExecutionResult materialized = new ExecutionResult(packed.initResults,
+            Collections.singletonList(new ArrayList<>(packed.parallelResults.get(0))), packed.postResults);
+        Assert.assertEquals(materialized.parallelResults, packed.parallelResults);
+        // The materialized results are found in the cache by the fingerprint of the packed ones
+        CountingVerifier verifier = new CountingVerifier(16, CachedVerifier.EvictionPolicy.CLEAR);
+        Assert.assertTrue(verifier.verifyResults(packed));
+        Assert.assertTrue(verifier.verifyResults(materialized));
+        Assert.assertEquals(1, verifier.verified);
+        Assert.assertEquals(1, verifier.getHits());
+    }
+
+    private static ExecutionResult results(Object value) {
+        return new ExecutionResult(Collections.emptyList(),
+            Collections.singletonList(Collections.singletonList(Result.createValueResult(value))),
+            Collections.singletonList(Result.createVoidResult()));
+    }
+
+    private static class CountingVerifier extends CachedVerifier {
+        int verified;
+
+        CountingVerifier(int capacity, EvictionPolicy evictionPolicy) {
+            super(capacity, evictionPolicy);
+        }
+
+        @Override
+        public boolean verifyResultsImpl(ExecutionResult results) {
+            verified++;
+            Object value = results.parallelResults.get(0).get(0).getValue();
+            return !Integer.valueOf(-1).equals(value) && !new Colliding(-1).equals(value);
+        }
+    }
+
+    // The values are different, but their hash codes and string representations are the same
+    private static class Colliding {
+        final int id;
+
+        Colliding(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Colliding && ((Colliding) o).id == id;
+        }
+
+        @Override
+        public int hashCode() {
+            return 0;
+        }
+
+        @Override
+        public String toString() {
+            return "Colliding";
+        }
+    }
+
+    public static class AllTypes {
+        public void voidOp() {}
+
+        public boolean booleanOp() {
+            return true;
+        }
+
+        public byte byteOp() {
+            return -1;
+        }
+
+        public char charOp() {
+            return '\uffff';
+        }
+
+        public short shortOp() {
+            return -2;
+        }
+
+        public int intOp() {
+            return -3;
+        }
+
+        public long longOp() {
+            return Long.MIN_VALUE;
+        }
+
+        public float floatOp() {
+            return -0.5f;
+        }
+
+        public double doubleOp() {
+            return Double.NaN;
+        }
+
+        public String stringOp() {
+            return "value";
+        }
+
+        public Object nullOp() {
+            return null;
+        }
+
+        public int exceptionOp() {
+            throw new IllegalStateException();
+        }
+    }
+}
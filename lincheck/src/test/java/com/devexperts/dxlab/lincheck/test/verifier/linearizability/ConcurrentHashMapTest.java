@@ -31,7 +31,7 @@ public class ConcurrentHashMapTest {
         return map.put(key, value);
     }
 
-    @Operation
+    @Operation(readOnly = true)
     public Integer get(@Param(name = "key") Integer key) {
         return map.get(key);
     }
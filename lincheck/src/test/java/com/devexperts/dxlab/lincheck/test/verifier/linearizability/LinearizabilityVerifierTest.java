@@ -0,0 +1,236 @@
+/*
+ * Lincheck - Linearizability checker
+ *
+ * Copyright (C) 2015-2022 Devexperts, LLC
+ * Copyright (C) 2023 Devexperts Ireland Limited
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed with this file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.devexperts.dxlab.lincheck.test.verifier.linearizability;
+
+import com.devexperts.dxlab.lincheck.Actor;
+import com.devexperts.dxlab.lincheck.Result;
+import com.devexperts.dxlab.lincheck.annotations.Operation;
+import com.devexperts.dxlab.lincheck.execution.ExecutionResult;
+import com.devexperts.dxlab.lincheck.execution.ExecutionScenario;
+import com.devexperts.dxlab.lincheck.verifier.ParallelLTSVerifierConf;
+import com.devexperts.dxlab.lincheck.verifier.linearizability.LinearizabilityVerifier;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class LinearizabilityVerifierTest {
+    private static final int THREADS = 3;
+    private static final int ACTORS_PER_THREAD = 3;
+
+    @Test
+    public void testCorrectResults() throws Exception {
+        testCorrectResults(Counter.class);
+    }
+
+    @Test
+    public void testIncorrectResults() throws Exception {
+        testIncorrectResults(Counter.class);
+    }
+
+    @Test
+    public void testCorrectResultsWithCopy() throws Exception {
+        testCorrectResults(CopyableCounter.class);
+    }
+
+    @Test
+    public void testIncorrectResultsWithCopy() throws Exception {
+        testIncorrectResults(CopyableCounter.class);
+    }
+
+    @Test
+    public void testCloneIsNotUsedForCopying() throws Exception {
+        Actor inc = new Actor(CloneableCounter.class.getMethod("incAndGet"), Collections.emptyList(), Collections.emptyList());
+        Actor get = new Actor(CloneableCounter.class.getMethod("get"), Collections.emptyList(), Collections.emptyList());
+        ExecutionScenario scenario = new ExecutionScenario(Collections.emptyList(), Arrays.asList(
+            Collections.singletonList(inc), Collections.singletonList(get)
+        ), Collections.singletonList(get));
+        // The increment is linearized after the get, thus both transitions from the initial state are
+        // explored, and the shallow copies of the initial state would see the incremented value
+        ExecutionResult results = new ExecutionResult(Collections.emptyList(), Arrays.asList(
+            Collections.singletonList(value(1)), Collections.singletonList(value(0))
+        ), Collections.singletonList(value(1)));
+        Assert.assertTrue(new LinearizabilityVerifier(scenario, CloneableCounter.class).verifyResults(results));
+    }
+
+    @Test
+    public void testCorrectResultsInParallel() throws Exception {
+        testCorrectResults(ParallelCounter.class);
+    }
+
+    @Test
+    public void testIncorrectResultsInParallel() throws Exception {
+        testIncorrectResults(ParallelCounter.class);
+    }
+
+    @Test
+    public void testLongScenario() throws Exception {
+        // The search should not use the call stack for each step
+        int n = 100_000;
+        Actor inc = new Actor(CopyableCounter.class.getMethod("incAndGet"), Collections.emptyList(), Collections.emptyList());
+        ExecutionScenario scenario = new ExecutionScenario(Collections.nCopies(n, inc),
+            Collections.singletonList(Collections.singletonList(inc)), Collections.emptyList());
+        List<Result> initResults = new ArrayList<>(n);
+        for (int i = 1; i <= n; i++)
+            initResults.add(value(i));
+        ExecutionResult results = new ExecutionResult(initResults,
+            Collections.singletonList(Collections.singletonList(value(n + 1))), Collections.emptyList());
+        Assert.assertTrue(new LinearizabilityVerifier(scenario, CopyableCounter.class).verifyResults(results));
+    }
+
+    @Test
+    public void testReadOnlyOperations() throws Exception {
+        Actor inc = new Actor(Register.class.getMethod("incAndGet"), Collections.emptyList(), Collections.emptyList());
+        Actor get = new Actor(Register.class.getMethod("get"), Collections.emptyList(), Collections.emptyList());
+        List<Actor> thread = Arrays.asList(get, get, get, inc, get);
+        ExecutionScenario scenario = new ExecutionScenario(Collections.emptyList(), Collections.nCopies(THREADS, thread),
+            Collections.singletonList(get));
+        // All the reads before the increments see zero, the last reads see the final value or an intermediate one
+        ExecutionResult correct = new ExecutionResult(Collections.emptyList(), Arrays.asList(
+            Arrays.asList(value(0), value(0), value(0), value(1), value(3)),
+            Arrays.asList(value(0), value(0), value(0), value(2), value(2)),
+            Arrays.asList(value(0), value(0), value(0), value(3), value(3))
+        ), Collections.singletonList(value(3)));
+        Assert.assertTrue(new LinearizabilityVerifier(scenario, Register.class).verifyResults(correct));
+        // The first thread reads 3 before the third increment which it should precede
+        ExecutionResult incorrect = new ExecutionResult(Collections.emptyList(), Arrays.asList(
+            Arrays.asList(value(0), value(0), value(3), value(1), value(3)),
+            Arrays.asList(value(0), value(0), value(0), value(2), value(2)),
+            Arrays.asList(value(0), value(0), value(0), value(3), value(3))
+        ), Collections.singletonList(value(3)));
+        Assert.assertFalse(new LinearizabilityVerifier(scenario, Register.class).verifyResults(incorrect));
+    }
+
+    @Test
+    public void testRealTimeOrder() throws Exception {
+        Actor inc = new Actor(Counter.class.getMethod("incAndGet"), Collections.emptyList(), Collections.emptyList());
+        ExecutionScenario scenario = new ExecutionScenario(Collections.emptyList(), Arrays.asList(
+            Collections.singletonList(inc), Collections.singletonList(inc)
+        ), Collections.emptyList());
+        List<List<Result>> parallelResults = Arrays.asList(
+            Collections.singletonList(value(2)), Collections.singletonList(value(1)));
+        // The increments are concurrent
+        Assert.assertTrue(new LinearizabilityVerifier(scenario, Counter.class).verifyResults(
+            new ExecutionResult(Collections.emptyList(), parallelResults, Collections.emptyList())));
+        // The second increment starts after the first one completes, but returns the smaller value
+        int[][][] hbClocks = {{{0, 0}}, {{1, 0}}};
+        Assert.assertFalse(new LinearizabilityVerifier(scenario, Counter.class).verifyResults(
+            new ExecutionResult(Collections.emptyList(), parallelResults, Collections.emptyList(), hbClocks)));
+    }
+
+    @Test
+    public void testHBClocksFromActorTimes() {
+        List<List<Result>> parallelResults = Arrays.asList(
+            Arrays.asList(value(1), value(3)), Collections.singletonList(value(2)));
+        // The times of the second invocation in a batch of two
+        long[][] startTimes = {{0, 2, 10, 30}, {100, 25}};
+        long[][] endTimes = {{1, 3, 20, 40}, {101, 35}};
+        ExecutionResult results = new ExecutionResult(Collections.emptyList(), parallelResults,
+            Collections.emptyList(), startTimes, endTimes, 1);
+        int[][][] expected = {{{0, 0}, {0, 0}}, {{1, 0}}};
+        Assert.assertArrayEquals(expected, results.getParallelHBClocks());
+        Assert.assertEquals(new ExecutionResult(Collections.emptyList(), parallelResults, Collections.emptyList(),
+            expected), results);
+    }
+
+    private void testCorrectResults(Class<? extends Counter> counterClass) throws Exception {
+        ExecutionScenario scenario = scenario(counterClass);
+        // Thread t gets t+1, t+1+THREADS, ...
+        ExecutionResult results = new ExecutionResult(Collections.emptyList(), Arrays.asList(
+            Arrays.asList(value(1), value(4), value(7)),
+            Arrays.asList(value(2), value(5), value(8)),
+            Arrays.asList(value(3), value(6), value(9))
+        ), Collections.singletonList(value(10)));
+        Assert.assertTrue(new LinearizabilityVerifier(scenario, counterClass).verifyResults(results));
+    }
+
+    private void testIncorrectResults(Class<? extends Counter> counterClass) throws Exception {
+        ExecutionScenario scenario = scenario(counterClass);
+        // The last value is returned twice, the search should explore all the interleavings and fail
+        ExecutionResult results = new ExecutionResult(Collections.emptyList(), Arrays.asList(
+            Arrays.asList(value(1), value(4), value(7)),
+            Arrays.asList(value(2), value(5), value(8)),
+            Arrays.asList(value(3), value(6), value(8))
+        ), Collections.singletonList(value(9)));
+        Assert.assertFalse(new LinearizabilityVerifier(scenario, counterClass).verifyResults(results));
+    }
+
+    private static ExecutionScenario scenario(Class<? extends Counter> counterClass) throws NoSuchMethodException {
+        Actor inc = new Actor(counterClass.getMethod("incAndGet"), Collections.emptyList(), Collections.emptyList());
+        List<Actor> thread = Collections.nCopies(ACTORS_PER_THREAD, inc);
+        return new ExecutionScenario(Collections.emptyList(), Collections.nCopies(THREADS, thread),
+            Collections.singletonList(inc));
+    }
+
+    private static Result value(int value) {
+        return Result.createValueResult(value);
+    }
+
+    public static class Counter {
+        int value;
+
+        public int incAndGet() {
+            return ++value;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Counter && ((Counter) o).value == value;
+        }
+
+        @Override
+        public int hashCode() {
+            return value;
+        }
+    }
+
+    public static class CopyableCounter extends Counter {
+        public CopyableCounter copy() {
+            CopyableCounter copy = new CopyableCounter();
+            copy.value = value;
+            return copy;
+        }
+    }
+
+    // The default clone() is shallow and shares the array between the copies
+    public static class CloneableCounter extends Counter implements Cloneable {
+        private int[] values = new int[1];
+
+        @Override
+        public int incAndGet() {
+            value = ++values[0];
+            return value;
+        }
+
+        public int get() {
+            return values[0];
+        }
+
+        @Override
+        public CloneableCounter clone() throws CloneNotSupportedException {
+            return (CloneableCounter) super.clone();
+        }
+    }
+
+    @ParallelLTSVerifierConf(parallelism = 2, splitDepth = 3)
+    public static class ParallelCounter extends Counter {
+    }
+
+    public static class Register extends Counter {
+        @Operation(readOnly = true)
+        public int get() {
+            return value;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Lincheck - Linearizability checker
+ *
+ * Copyright (C) 2015-2022 Devexperts, LLC
+ * Copyright (C) 2023 Devexperts Ireland Limited
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed with this file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.devexperts.dxlab.lincheck.test.verifier.linearizability;
+
+import com.devexperts.dxlab.lincheck.LinChecker;
+import com.devexperts.dxlab.lincheck.Options;
+import com.devexperts.dxlab.lincheck.annotations.Operation;
+import com.devexperts.dxlab.lincheck.annotations.Param;
+import com.devexperts.dxlab.lincheck.paramgen.IntGen;
+import com.devexperts.dxlab.lincheck.strategy.stress.StressOptions;
+import com.devexperts.dxlab.lincheck.verifier.linearizability.PartitionKey;
+import com.devexperts.dxlab.lincheck.verifier.linearizability.PartitionedLinearizabilityVerifier;
+import org.junit.Test;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class PartitionedLinearizabilityVerifierTest {
+    @Test
+    public void testCorrect() {
+        LinChecker.check(CorrectMap.class, options());
+    }
+
+    @Test(expected = AssertionError.class)
+    public void testIncorrect() {
+        LinChecker.check(IncorrectMap.class, options());
+    }
+
+    private static Options options() {
+        return new StressOptions()
+            .iterations(20)
+            .invocationsPerIteration(500)
+            .threads(3)
+            .actorsPerThread(10)
+            .verifier(PartitionedLinearizabilityVerifier.class);
+    }
+
+    @Param(name = "key", gen = IntGen.class, conf = "1:3")
+    public static class CorrectMap {
+        final ConcurrentHashMap<Integer, Integer> map = new ConcurrentHashMap<>();
+
+        @Operation
+        public Integer put(@PartitionKey @Param(name = "key") Integer key, Integer value) {
+            return map.put(key, value);
+        }
+
+        @Operation(readOnly = true)
+        public Integer get(@PartitionKey @Param(name = "key") Integer key) {
+            return map.get(key);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o != null && getClass() == o.getClass() && map.equals(((CorrectMap) o).map);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(map);
+        }
+    }
+
+    public static class IncorrectMap extends CorrectMap {
+        // Not atomic
+        @Operation
+        public Integer putIfAbsent(@PartitionKey @Param(name = "key") Integer key, Integer value) {
+            Integer old = map.get(key);
+            Thread.yield();
+            if (old == null)
+                map.put(key, value);
+            return old;
+        }
+    }
+}
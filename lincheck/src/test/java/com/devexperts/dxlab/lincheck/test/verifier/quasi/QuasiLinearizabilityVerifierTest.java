@@ -0,0 +1,135 @@
+/*
+ * Lincheck - Linearizability checker
+ *
+ * Copyright (C) 2015-2022 Devexperts, LLC
+ * Copyright (C) 2023 Devexperts Ireland Limited
+ *
+ * This Source Code Form is subject to the terms of the Mozilla Public License, v. 2.0.
+ * If a copy of the MPL was not distributed with this file, You can obtain one at http://mozilla.org/MPL/2.0/.
+ */
+
+package com.devexperts.dxlab.lincheck.test.verifier.quasi;
+
+import com.devexperts.dxlab.lincheck.Actor;
+import com.devexperts.dxlab.lincheck.Result;
+import com.devexperts.dxlab.lincheck.execution.ExecutionResult;
+import com.devexperts.dxlab.lincheck.execution.ExecutionScenario;
+import com.devexperts.dxlab.lincheck.verifier.quasi.QuasiLinearizabilityVerifier;
+import com.devexperts.dxlab.lincheck.verifier.quasi.QuasiLinearizabilityVerifierConf;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+
+public class QuasiLinearizabilityVerifierTest {
+    @Test
+    public void testReorderedInitPart() throws Exception {
+        // The second enqueue is executed before the first one
+        List<Actor> init = Arrays.asList(enqueue(1), enqueue(2), dequeue(), dequeue());
+        ExecutionScenario scenario = new ExecutionScenario(init, Collections.emptyList(), Collections.emptyList());
+        ExecutionResult results = new ExecutionResult(
+            Arrays.asList(VOID, VOID, value(2), value(1)), Collections.emptyList(), Collections.emptyList());
+        Assert.assertFalse(verify(scenario, Factor0.class, results));
+        Assert.assertTrue(verify(scenario, Factor1.class, results));
+    }
+
+    @Test
+    public void testLatenessExceedsFactor() throws Exception {
+        // The last enqueue should be executed two actors earlier
+        List<Actor> init = Arrays.asList(enqueue(1), enqueue(2), enqueue(3), dequeue());
+        ExecutionScenario scenario = new ExecutionScenario(init, Collections.emptyList(), Collections.emptyList());
+        ExecutionResult results = new ExecutionResult(
+            Arrays.asList(VOID, VOID, VOID, value(3)), Collections.emptyList(), Collections.emptyList());
+        Assert.assertFalse(verify(scenario, Factor1.class, results));
+        Assert.assertTrue(verify(scenario, Factor2.class, results));
+    }
+
+    @Test
+    public void testReorderedParallelPart() throws Exception {
+        ExecutionScenario scenario = new ExecutionScenario(Collections.emptyList(), Arrays.asList(
+            Arrays.asList(enqueue(1), enqueue(2)), Collections.singletonList(dequeue())
+        ), Collections.singletonList(dequeue()));
+        ExecutionResult results = new ExecutionResult(Collections.emptyList(), Arrays.asList(
+            Arrays.asList(VOID, VOID), Collections.singletonList(value(2))
+        ), Collections.singletonList(value(1)));
+        Assert.assertFalse(verify(scenario, Factor0.class, results));
+        Assert.assertTrue(verify(scenario, Factor1.class, results));
+    }
+
+    @Test
+    public void testLongScenario() throws Exception {
+        // Every pair of enqueues is reordered
+        int n = 10_000;
+        List<Actor> init = new ArrayList<>();
+        List<Result> initResults = new ArrayList<>();
+        for (int i = 0; i < n; i += 2) {
+            init.addAll(Arrays.asList(enqueue(i), enqueue(i + 1), dequeue(), dequeue()));
+            initResults.addAll(Arrays.asList(VOID, VOID, value(i + 1), value(i)));
+        }
+        ExecutionScenario scenario = new ExecutionScenario(init, Collections.emptyList(), Collections.emptyList());
+        ExecutionResult results = new ExecutionResult(initResults, Collections.emptyList(), Collections.emptyList());
+        Assert.assertTrue(verify(scenario, Factor1.class, results));
+    }
+
+    private static boolean verify(ExecutionScenario scenario, Class<?> testClass, ExecutionResult results) {
+        return new QuasiLinearizabilityVerifier(scenario, testClass).verifyResults(results);
+    }
+
+    private static Actor enqueue(int item) throws NoSuchMethodException {
+        return new Actor(Queue.class.getMethod("enqueue", int.class), Collections.singletonList(item), Collections.emptyList());
+    }
+
+    private static Actor dequeue() throws NoSuchMethodException {
+        return new Actor(Queue.class.getMethod("dequeue"), Collections.emptyList(), Collections.emptyList());
+    }
+
+    private static final Result VOID = Result.createVoidResult();
+
+    private static Result value(int value) {
+        return Result.createValueResult(value);
+    }
+
+    @QuasiLinearizabilityVerifierConf(factor = 0, sequentialImplementation = Queue.class)
+    public static class Factor0 {
+    }
+
+    @QuasiLinearizabilityVerifierConf(factor = 1, sequentialImplementation = Queue.class)
+    public static class Factor1 {
+    }
+
+    @QuasiLinearizabilityVerifierConf(factor = 2, sequentialImplementation = Queue.class)
+    public static class Factor2 {
+    }
+
+    public static class Queue {
+        private final LinkedList<Integer> items = new LinkedList<>();
+
+        public void enqueue(int item) {
+            items.add(item);
+        }
+
+        public Integer dequeue() {
+            return items.poll();
+        }
+
+        public Queue copy() {
+            Queue copy = new Queue();
+            copy.items.addAll(items);
+            return copy;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Queue && ((Queue) o).items.equals(items);
+        }
+
+        @Override
+        public int hashCode() {
+            return items.hashCode();
+        }
+    }
+}